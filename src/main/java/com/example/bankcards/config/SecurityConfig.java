@@ -1,10 +1,19 @@
 package com.example.bankcards.config;
 
+import com.example.bankcards.security.Argon2Calibrator;
+import com.example.bankcards.security.Argon2Calibrator.Argon2Parameters;
+import com.example.bankcards.security.Argon2ParameterStore;
+import com.example.bankcards.security.BoundedPasswordEncoder;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.UpgradingAuthenticationProvider;
+import com.example.bankcards.security.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -12,17 +21,29 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    /**
+     * Нижние границы параметров Argon2: память одного хеша (КиБ) и число итераций.
+     * Калибровка не опускается ниже них
+     */
+    static final int ARGON2_MEMORY_KIB = 16384;
+    static final int ARGON2_ITERATIONS = 3;
+    static final String ARGON2_ID = "argon2";
+
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final AuthenticationEntryPoint authenticationEntryPoint;
 
@@ -35,19 +56,80 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/auth/**").permitAll()
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().permitAll()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
 
+    /**
+     * Проверка пароля и пересчёт устаревших хешей. Пересчёт пропускается, если пул хеширования перегружен
+     */
+    @Bean
+    public DaoAuthenticationProvider authenticationProvider(UserDetailsServiceImpl userDetailsService,
+                                                            PasswordEncoder passwordEncoder) {
+        UpgradingAuthenticationProvider provider = new UpgradingAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        return provider;
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) {
         return config.getAuthenticationManager();
     }
 
+    /**
+     * Параметры Argon2 для новых хешей должны совпадать на всех узлах: хеш с более слабыми параметрами
+     * пересчитывается при входе, и узел с более сильными параметрами пересчитывал бы хеши других узлов.
+     * С калибровкой параметры подбирает первый узел и сохраняет в базе, остальные узлы берут их оттуда.
+     * Без калибровки используются параметры из app.password-hashing.argon2
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new Argon2PasswordEncoder(16, 32, 1, 16384, 3);
+    public Argon2Parameters argon2Parameters(
+            Argon2ParameterStore argon2ParameterStore,
+            @Value("${app.password-hashing.argon2.memory-kib:16384}") int memoryKib,
+            @Value("${app.password-hashing.argon2.iterations:3}") int iterations,
+            @Value("${app.password-hashing.calibration.enabled:true}") boolean calibrationEnabled,
+            @Value("${app.password-hashing.calibration.target-latency:250ms}") Duration targetLatency,
+            @Value("${app.password-hashing.calibration.max-memory-kib:65536}") int maxMemoryKib,
+            @Value("${app.password-hashing.calibration.max-iterations:10}") int maxIterations
+    ) {
+        if (calibrationEnabled) {
+            return argon2ParameterStore.loadOrCalibrate(() -> Argon2Calibrator.calibrate(targetLatency,
+                    ARGON2_MEMORY_KIB, maxMemoryKib, ARGON2_ITERATIONS, maxIterations));
+        }
+        if (memoryKib < ARGON2_MEMORY_KIB || iterations < ARGON2_ITERATIONS) {
+            throw new IllegalStateException("Параметры Argon2 ниже допустимых: память не меньше "
+                    + ARGON2_MEMORY_KIB + " КиБ, итераций не меньше " + ARGON2_ITERATIONS);
+        }
+        return new Argon2Parameters(memoryKib, iterations);
+    }
+
+    /**
+     * Новые хеши создаются с общими для всех узлов параметрами и префиксом {argon2}. Хеши без префикса
+     * и хеши с более слабыми параметрами проверяются тем же Argon2 и пересчитываются при успешном входе
+     * через {@link org.springframework.security.core.userdetails.UserDetailsPasswordService}
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(
+            Argon2Parameters argon2Parameters,
+            MeterRegistry meterRegistry,
+            @Value("${app.password-hashing.concurrency:4}") int concurrency,
+            @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password-hashing.max-queue-wait:2s}") Duration maxQueueWait
+    ) {
+        Argon2PasswordEncoder argon2 = argon2Parameters.encoder();
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(ARGON2_ID, Map.of(ARGON2_ID, argon2));
+        delegating.setDefaultPasswordEncoderForMatches(argon2);
+
+        return new BoundedPasswordEncoder(
+                delegating,
+                argon2Parameters.memoryKib() * 1024L,
+                concurrency,
+                queueCapacity,
+                maxQueueWait,
+                meterRegistry);
     }
 }
@@ -0,0 +1,74 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardLookupRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.enums.ExportFormat;
+import com.example.bankcards.mapping.CardMapper;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardStatsService;
+import com.example.bankcards.service.TransferExportService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminController {
+
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+    private final TransferExportService transferExportService;
+    private final CardService cardService;
+    private final CardMapper cardMapper;
+    private final CardStatsService cardStatsService;
+
+    @GetMapping("/transfers/export")
+    public ResponseEntity<StreamingResponseBody> exportTransfers(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "CSV") ExportFormat format
+    ) {
+        transferExportService.validateRange(from, to);
+        String extension = format == ExportFormat.CSV ? "csv" : "ndjson";
+        return ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV ? TEXT_CSV : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transfers." + extension)
+                        .build()
+                        .toString())
+                .body(out -> transferExportService.export(from, to, format, out));
+    }
+
+    /**
+     * Поиск карты по полному номеру. Номер передаётся в теле запроса, чтобы не попадать в URL и логи доступа
+     */
+    @PostMapping("/cards/lookup")
+    public ResponseEntity<CardResponse> lookupCard(@Valid @RequestBody CardLookupRequest request) {
+        return ResponseEntity.ok(cardMapper.toResponse(cardService.findByNumber(request.cardNumber())));
+    }
+
+    /**
+     * Агрегаты по картам из счётчиков {@link CardStatsService}, без запросов к таблице cards
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CardStatsResponse> getStats(@RequestParam(defaultValue = "30") int days) {
+        return ResponseEntity.ok(cardStatsService.stats(days));
+    }
+}
@@ -1,21 +1,32 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.AsyncTransferStatusResponse;
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.BulkCardImportResponse;
 import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.CursorPageResponseDto;
+import com.example.bankcards.dto.LedgerBalanceResponse;
 import com.example.bankcards.dto.PageResponseDto;
+import com.example.bankcards.dto.SliceResponseDto;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.enums.CardStatus;
 import com.example.bankcards.mapping.CardMapper;
 import com.example.bankcards.security.UserPrincipal;
+import com.example.bankcards.service.AsyncTransferService;
+import com.example.bankcards.service.CardBulkImportService;
 import com.example.bankcards.service.CardService;
-import com.example.bankcards.service.TransferService;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.service.TransferEngine;
+import com.example.bankcards.service.TransferHistoryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,11 +37,16 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @RestController
@@ -40,7 +56,11 @@ public class CardController {
 
     private final CardService cardService;
     private final CardMapper cardMapper;
-    private final TransferService transferService;
+    private final TransferEngine transferEngine;
+    private final AsyncTransferService asyncTransferService;
+    private final LedgerService ledgerService;
+    private final TransferHistoryService transferHistoryService;
+    private final CardBulkImportService cardBulkImportService;
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -50,6 +70,15 @@ public class CardController {
                 .body(cardMapper.toResponse(cardService.createCard(request)));
     }
 
+    /**
+     * Массовый выпуск карт из CSV. Тело читается потоком, в ответе - отчёт с ошибками по строкам
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkCardImportResponse> importCards(InputStream body) throws IOException {
+        return ResponseEntity.ok(cardBulkImportService.importCsv(body));
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PageResponseDto<CardResponse>> getAllCards(
@@ -57,9 +86,9 @@ public class CardController {
             @RequestParam(required = false) String holderName,
             Pageable pageable
     ) {
-        Page<Card> page = cardService.getAllCards(status, holderName, pageable);
+        Page<CardResponse> page = cardService.getAllCards(status, holderName, pageable);
         return ResponseEntity.ok(new PageResponseDto<>(
-                page.getContent().stream().map(cardMapper::toResponse).toList(),
+                page.getContent(),
                 page.getNumber(),
                 page.getSize(),
                 page.getTotalElements(),
@@ -67,6 +96,39 @@ public class CardController {
         ));
     }
 
+    /**
+     * Страница без totalElements и totalPages: вместо запроса COUNT читается одна лишняя строка для hasNext
+     */
+    @GetMapping("/slice")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SliceResponseDto<CardResponse>> getAllCardsSlice(
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String holderName,
+            Pageable pageable
+    ) {
+        Slice<CardResponse> slice = cardService.getAllCardsSlice(status, holderName, pageable);
+        return ResponseEntity.ok(new SliceResponseDto<>(
+                slice.getContent(),
+                slice.getNumber(),
+                slice.getSize(),
+                slice.hasNext()
+        ));
+    }
+
+    /**
+     * Выборка по курсору (created_at, id): cursor не передаётся для первой страницы, далее - nextCursor из ответа
+     */
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageResponseDto<CardResponse>> getAllCardsAfter(
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String holderName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(cardService.getAllCardsAfter(status, holderName, cursor, size));
+    }
+
     @PatchMapping("/{id}/activate")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<CardResponse> activateCard(@PathVariable UUID id) {
@@ -79,6 +141,15 @@ public class CardController {
         return ResponseEntity.ok(cardMapper.toResponse(cardService.blockCard(id)));
     }
 
+    @GetMapping("/{id}/balance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<LedgerBalanceResponse> getBalanceAsOf(
+            @PathVariable UUID id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf
+    ) {
+        return ResponseEntity.ok(ledgerService.balanceAsOf(id, asOf != null ? asOf : LocalDateTime.now()));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -93,9 +164,9 @@ public class CardController {
             @RequestParam(required = false) CardStatus status,
             Pageable pageable
     ) {
-        Page<Card> page = cardService.getCardsByOwner(principal.getId(), status, pageable);
+        Page<CardResponse> page = cardService.getCardsByOwner(principal.getId(), status, pageable);
         return ResponseEntity.ok(new PageResponseDto<>(
-                page.getContent().stream().map(cardMapper::toResponse).toList(),
+                page.getContent(),
                 page.getNumber(),
                 page.getSize(),
                 page.getTotalElements(),
@@ -103,13 +174,51 @@ public class CardController {
         ));
     }
 
+    @GetMapping("/myCards/slice")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<SliceResponseDto<CardResponse>> getMyCardsSlice(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(required = false) CardStatus status,
+            Pageable pageable
+    ) {
+        Slice<CardResponse> slice = cardService.getCardsByOwnerSlice(principal.getId(), status, pageable);
+        return ResponseEntity.ok(new SliceResponseDto<>(
+                slice.getContent(),
+                slice.getNumber(),
+                slice.getSize(),
+                slice.hasNext()
+        ));
+    }
+
+    @GetMapping("/myCards/cursor")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPageResponseDto<CardResponse>> getMyCardsAfter(
+            @AuthenticationPrincipal UserPrincipal principal,
+            @RequestParam(required = false) CardStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(cardService.getCardsByOwnerAfter(principal.getId(), status, cursor, size));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<CardResponse> getCard(
             @PathVariable UUID id,
             @AuthenticationPrincipal UserPrincipal principal
     ) {
-        return ResponseEntity.ok(cardMapper.toResponse(cardService.getCard(id, principal.getId())));
+        return ResponseEntity.ok(cardService.getCard(id, principal.getId()));
+    }
+
+    @GetMapping("/{id}/transfers")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<CursorPageResponseDto<TransferResponse>> getTransferHistory(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(transferHistoryService.getHistory(id, principal.getId(), cursor, size));
     }
 
     @PatchMapping("/{id}/request-block")
@@ -125,17 +234,41 @@ public class CardController {
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<TransferResponse> transfer(
             @Valid @RequestBody TransferRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(transferEngine.transfer(request, principal.getId(), idempotencyKey));
+    }
+
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<BatchTransferResponse> transferBatch(
+            @Valid @RequestBody BatchTransferRequest request,
+            @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        return ResponseEntity.ok(transferEngine.transferBatch(request, principal.getId()));
+    }
+
+    @PostMapping("/transfers/async")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<AsyncTransferStatusResponse> transferAsync(
+            @Valid @RequestBody TransferRequest request,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserPrincipal principal
+    ) {
+        AsyncTransferStatusResponse response = asyncTransferService.submit(request, principal.getId(), idempotencyKey);
+        return ResponseEntity
+                .accepted()
+                .location(URI.create("/api/v1/cards/transfers/" + response.id() + "/status"))
+                .body(response);
+    }
+
+    @GetMapping("/transfers/{id}/status")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<AsyncTransferStatusResponse> getTransferStatus(
+            @PathVariable UUID id,
             @AuthenticationPrincipal UserPrincipal principal
     ) {
-        Transfer savedTransfer = transferService.transfer(request, principal.getId());
-        return ResponseEntity.ok(
-                TransferResponse.builder()
-                        .fromCardMasked(savedTransfer.getFromCard().getMaskedNumber())
-                        .toCardMasked(savedTransfer.getToCard().getMaskedNumber())
-                        .id(savedTransfer.getId())
-                        .amount(savedTransfer.getAmount())
-                        .createdAt(savedTransfer.getCreatedAt())
-                        .build()
-        );
+        return ResponseEntity.ok(asyncTransferService.getStatus(id, principal.getId()));
     }
 }
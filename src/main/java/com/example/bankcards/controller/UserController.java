@@ -1,6 +1,8 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CursorPageResponseDto;
 import com.example.bankcards.dto.PageResponseDto;
+import com.example.bankcards.dto.SliceResponseDto;
 import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.mapping.UserMapper;
@@ -8,6 +10,7 @@ import com.example.bankcards.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,6 +19,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -43,6 +47,30 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Страница без totalElements и totalPages, без запроса COUNT
+     */
+    @GetMapping("/slice")
+    public ResponseEntity<SliceResponseDto<UserResponse>> getAllUsersSlice(Pageable pageable) {
+        Slice<User> slice = userService.getAllUsersSlice(pageable);
+        return ResponseEntity.ok(new SliceResponseDto<>(
+                slice.getContent().stream().map(userMapper::toResponse).toList(),
+                slice.getNumber(),
+                slice.getSize(),
+                slice.hasNext()));
+    }
+
+    /**
+     * Выборка по курсору (created_at, id): cursor не передаётся для первой страницы, далее - nextCursor из ответа
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageResponseDto<UserResponse>> getUsersAfter(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(userService.getUsersAfter(cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserResponse> getUser(@PathVariable UUID id) {
         return ResponseEntity.ok(userMapper.toResponse(userService.getUserById(id)));
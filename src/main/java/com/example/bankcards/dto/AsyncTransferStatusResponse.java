@@ -0,0 +1,18 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.enums.AsyncTransferStatus;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder(toBuilder = true)
+public record AsyncTransferStatusResponse(
+        UUID id,
+        AsyncTransferStatus status,
+        TransferResponse transfer,
+        String error,
+        LocalDateTime submittedAt,
+        LocalDateTime completedAt
+) {
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.enums.BatchItemStatus;
+import lombok.Builder;
+
+@Builder
+public record BatchTransferItemResponse(
+        int index,
+        BatchItemStatus status,
+        TransferResponse transfer,
+        String error
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.enums.BatchTransferMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchTransferRequest(
+        @NotEmpty(message = "Список переводов не может быть пустым")
+        @Size(max = 1000, message = "Пакет не может содержать более 1000 переводов")
+        List<@Valid TransferRequest> transfers,
+
+        BatchTransferMode mode
+) {
+}
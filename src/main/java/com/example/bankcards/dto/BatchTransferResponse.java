@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.enums.BatchTransferMode;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record BatchTransferResponse(
+        BatchTransferMode mode,
+        int completed,
+        int failed,
+        List<BatchTransferItemResponse> results
+) {
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+/**
+ * Ошибка в строке файла массового выпуска карт
+ *
+ * @param line  номер строки в файле, начиная с 1
+ * @param error причина, по которой карта не выпущена
+ */
+public record BulkCardImportError(
+        long line,
+        String error
+) {
+}
@@ -0,0 +1,20 @@
+package com.example.bankcards.dto;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Отчёт о массовом выпуске карт
+ *
+ * @param errors ошибки по строкам в порядке строк файла, не больше app.card-bulk.max-errors;
+ *               остальные учитываются только в failed
+ */
+@Builder
+public record BulkCardImportResponse(
+        long total,
+        long created,
+        long failed,
+        List<BulkCardImportError> errors
+) {
+}
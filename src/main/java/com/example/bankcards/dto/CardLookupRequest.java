@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+public record CardLookupRequest(
+
+        @NotBlank(message = "Номер карты обязателен")
+        @Pattern(regexp = "\\d{16}", message = "Номер карты должен содержать ровно 16 цифр (без пробелов)")
+        String cardNumber
+
+) {
+}
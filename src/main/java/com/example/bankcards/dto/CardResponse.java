@@ -1,9 +1,9 @@
 package com.example.bankcards.dto;
 
 import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
 import lombok.Builder;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -17,7 +17,7 @@ public record CardResponse(
         String ownerUsername,
         LocalDate expiryDate,
         CardStatus status,
-        BigDecimal balance,
+        Money balance,
         LocalDateTime createdAt,
         LocalDateTime updatedAt
 ) {
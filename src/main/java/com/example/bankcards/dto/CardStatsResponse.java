@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Агрегаты по картам без учёта удалённых; issuedPerDay - по всем выпущенным картам
+ *
+ * @param asOf когда значения последний раз читались из card_stats; изменения этого узла учтены и после
+ */
+@Builder
+public record CardStatsResponse(
+        Map<CardStatus, Long> cardsByStatus,
+        long totalCards,
+        Money totalBalance,
+        Money averageBalance,
+        List<DailyIssuance> issuedPerDay,
+        LocalDateTime asOf
+) {
+}
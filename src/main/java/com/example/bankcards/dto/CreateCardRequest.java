@@ -1,13 +1,13 @@
 package com.example.bankcards.dto;
 
-import jakarta.validation.constraints.DecimalMin;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.validator.MinMoney;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -29,8 +29,8 @@ public record CreateCardRequest(
         LocalDate expiryDate,
 
         @NotNull(message = "Начальный баланс обязателен")
-        @DecimalMin(value = "0.00", message = "Баланс не может быть отрицательным")
-        BigDecimal initialBalance
+        @MinMoney(value = "0.00", message = "Баланс не может быть отрицательным")
+        Money initialBalance
 
 ) {
 }
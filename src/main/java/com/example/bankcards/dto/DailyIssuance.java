@@ -0,0 +1,9 @@
+package com.example.bankcards.dto;
+
+import java.time.LocalDate;
+
+public record DailyIssuance(
+        LocalDate day,
+        long issued
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.money.Money;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder
+public record LedgerBalanceResponse(
+        UUID cardId,
+        Money balance,
+        LocalDateTime asOf,
+        LocalDateTime snapshotAsOf,
+        long entriesAfterSnapshot
+) {
+}
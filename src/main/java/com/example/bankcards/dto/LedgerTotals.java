@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.money.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Количество, сумма и время последней из записей журнала карты за интервал
+ */
+public record LedgerTotals(
+        long count,
+        Money sum,
+        LocalDateTime lastCreatedAt
+) {
+
+    /**
+     * Для выборки в JPQL: SUM по колонке DECIMAL возвращает BigDecimal, а не {@link Money}
+     */
+    public LedgerTotals(long count, BigDecimal sum, LocalDateTime lastCreatedAt) {
+        this(count, Money.of(sum), lastCreatedAt);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto;
+
+import java.util.List;
+
+public record SliceResponseDto<T>(
+        List<T> content,
+        int page,
+        int size,
+        boolean hasNext
+) {
+}
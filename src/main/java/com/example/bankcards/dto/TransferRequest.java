@@ -1,9 +1,9 @@
 package com.example.bankcards.dto;
 
-import jakarta.validation.constraints.DecimalMin;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.validator.MinMoney;
 import jakarta.validation.constraints.NotNull;
 
-import java.math.BigDecimal;
 import java.util.UUID;
 
 public record TransferRequest(
@@ -14,7 +14,7 @@ public record TransferRequest(
         UUID toCardId,
 
         @NotNull(message = "Сумма перевода обязательна")
-        @DecimalMin(value = "0.01", message = "Сумма перевода должна быть больше 0")
-        BigDecimal amount
+        @MinMoney(value = "0.01", message = "Сумма перевода должна быть больше 0")
+        Money amount
 ) {
 }
\ No newline at end of file
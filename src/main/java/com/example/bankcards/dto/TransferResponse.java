@@ -1,8 +1,8 @@
 package com.example.bankcards.dto;
 
+import com.example.bankcards.money.Money;
 import lombok.Builder;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -11,7 +11,7 @@ public record TransferResponse(
         UUID id,
         String fromCardMasked,
         String toCardMasked,
-        BigDecimal amount,
+        Money amount,
         LocalDateTime createdAt
 ) {
 }
@@ -1,6 +1,7 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
@@ -13,6 +14,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -22,7 +24,6 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -44,6 +45,12 @@ public class Card {
     @Column(nullable = false, unique = true)
     private String encryptedNumber;
 
+    /**
+     * HMAC номера карты для поиска и проверки дубликатов, см. {@link com.example.bankcards.util.CardEncryptionUtil#hash}
+     */
+    @Column(unique = true, length = 64)
+    private String numberHash;
+
     @Column(nullable = false)
     private String maskedNumber;
 
@@ -62,7 +69,7 @@ public class Card {
     private CardStatus status;
 
     @Column(nullable = false, precision = 15, scale = 2)
-    private BigDecimal balance;
+    private Money balance;
 
     @CreatedDate
     @Column(nullable = false, updatable = false)
@@ -74,4 +81,8 @@ public class Card {
 
     private LocalDateTime deletedAt;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
 }
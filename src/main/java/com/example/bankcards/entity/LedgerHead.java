@@ -0,0 +1,39 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Текущее состояние журнала по карте: баланс по всем записям и число записей после последнего снимка
+ */
+@Entity
+@Table(name = "ledger_heads")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LedgerHead {
+
+    @Id
+    private UUID cardId;
+
+    /**
+     * Баланс в копейках
+     */
+    @Column(nullable = false)
+    private long balanceMinor;
+
+    @Column(nullable = false)
+    private int entriesSinceSnapshot;
+
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Баланс карты с учётом всех записей журнала не позже asOf
+ */
+@Entity
+@Table(name = "ledger_snapshots")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@EntityListeners(AuditingEntityListener.class)
+public class LedgerSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, updatable = false)
+    private UUID cardId;
+
+    @Column(nullable = false, updatable = false, precision = 15, scale = 2)
+    private Money balance;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime asOf;
+
+    /**
+     * Сколько записей журнала добавлено к предыдущему снимку
+     */
+    @Column(nullable = false, updatable = false)
+    private int entryCount;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+}
@@ -0,0 +1,56 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.enums.IdempotencyStatus;
+import com.example.bankcards.money.Money;
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Сохранённый результат перевода для повторных запросов с тем же Idempotency-Key
+ */
+@Entity
+@Table(name = "transfer_idempotency")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferIdempotency {
+
+    @EmbeddedId
+    private TransferIdempotencyId id;
+
+    @Column(nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IdempotencyStatus status;
+
+    private UUID transferId;
+
+    private String fromCardMasked;
+
+    private String toCardMasked;
+
+    @Column(precision = 15, scale = 2)
+    private Money amount;
+
+    private LocalDateTime transferCreatedAt;
+
+    @Column(nullable = false, updatable = false, insertable = false)
+    private LocalDateTime createdAt;
+
+}
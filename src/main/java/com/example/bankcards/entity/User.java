@@ -51,6 +51,12 @@ public class User {
     @Column(nullable = false)
     private boolean enabled = true;
 
+    /**
+     * Версия выданных токенов. Увеличивается, когда ранее выданные токены должны перестать действовать
+     */
+    @Column(nullable = false)
+    private int tokenVersion;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,15 @@
+package com.example.bankcards.enums;
+
+/**
+ * Режим обработки пакета переводов
+ */
+public enum BatchTransferMode {
+    /**
+     * Пакет применяется целиком или не применяется вовсе
+     */
+    ATOMIC,
+    /**
+     * Применяются все корректные переводы, ошибочные пропускаются
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.enums;
+
+/**
+ * Режим выполнения перевода между картами
+ */
+public enum TransferMode {
+    /**
+     * Обе карты блокируются через SELECT ... FOR UPDATE, баланс изменяется в Java
+     */
+    PESSIMISTIC,
+    /**
+     * Списание и зачисление выполняются условными UPDATE без предварительного чтения карт
+     */
+    CONDITIONAL_UPDATE,
+    /**
+     * Карты читаются без блокировок, конфликт определяется по версии карты, перевод повторяется с экспоненциальной паузой
+     */
+    OPTIMISTIC,
+    /**
+     * Оптимистичный режим, который переключает карту на пессимистичную блокировку,
+     * если доля конфликтов по ней превысила порог
+     */
+    ADAPTIVE
+}
@@ -52,6 +52,26 @@ public class GlobalExceptionHandler {
                         .build());
     }
 
+    @ExceptionHandler(TransferConflictException.class)
+    public ResponseEntity<ErrorDto> handleTransferConflict(TransferConflictException ex, HttpServletRequest req) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ErrorDto.builder()
+                        .message(ex.getMessage())
+                        .timestamp(LocalDateTime.now())
+                        .path(req.getRequestURI())
+                        .build());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ErrorDto> handleTooManyRequests(TooManyRequestsException ex, HttpServletRequest req) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(ErrorDto.builder()
+                        .message(ex.getMessage())
+                        .timestamp(LocalDateTime.now())
+                        .path(req.getRequestURI())
+                        .build());
+    }
+
     @ExceptionHandler(CardOperationException.class)
     public ResponseEntity<ErrorDto> handleCardOperation(CardOperationException ex, HttpServletRequest req) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
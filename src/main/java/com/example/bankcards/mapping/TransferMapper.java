@@ -0,0 +1,14 @@
+package com.example.bankcards.mapping;
+
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Transfer;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface TransferMapper {
+
+    @Mapping(source = "fromCard.maskedNumber", target = "fromCardMasked")
+    @Mapping(source = "toCard.maskedNumber", target = "toCardMasked")
+    TransferResponse toResponse(Transfer transfer);
+}
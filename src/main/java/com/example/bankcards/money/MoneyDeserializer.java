@@ -0,0 +1,33 @@
+package com.example.bankcards.money;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Читает сумму из JSON-числа или строки напрямую в копейки, без промежуточного BigDecimal
+ */
+public class MoneyDeserializer extends StdDeserializer<Money> {
+
+    public MoneyDeserializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public Money deserialize(JsonParser p, DeserializationContext ctxt) throws JacksonException {
+        JsonToken token = p.currentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                && token != JsonToken.VALUE_STRING) {
+            return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+        }
+        String text = p.getString().trim();
+        try {
+            return Money.parse(text);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw ctxt.weirdStringException(text, Money.class,
+                    "Сумма должна быть числом с не более чем двумя знаками после точки");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.bankcards.money;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Пишет сумму JSON-числом с двумя знаками после точки, как раньше писался BigDecimal из колонки DECIMAL(15,2)
+ */
+public class MoneySerializer extends StdSerializer<Money> {
+
+    public MoneySerializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public void serialize(Money value, JsonGenerator gen, SerializationContext ctxt) throws JacksonException {
+        gen.writeNumber(value.toString());
+    }
+}
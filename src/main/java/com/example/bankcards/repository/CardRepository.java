@@ -13,18 +13,62 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card> {
+public interface CardRepository extends JpaRepository<Card, UUID>, JpaSpecificationExecutor<Card>,
+        CardRepositoryCustom {
 
     @Override
     @EntityGraph(attributePaths = {"owner"})
     Page<Card> findAll(Specification<Card> spec, Pageable pageable);
 
+    boolean existsByNumberHash(String numberHash);
+
+    @EntityGraph(attributePaths = {"owner"})
+    Optional<Card> findByNumberHash(String numberHash);
+
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT c FROM Card c WHERE c.id = :id")
     Optional<Card> findByIdWithLock(@Param("id") UUID id);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :ids ORDER BY c.id")
+    List<Card> findAllByIdWithLock(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Списывает сумму с карты, только если карта принадлежит пользователю, активна и на ней достаточно средств
+     *
+     * @param amountMinor сумма в копейках, см. {@link com.example.bankcards.money.Money#minorUnits()}
+     * @return маска номера карты или пустой Optional, если условие не выполнено
+     */
+    @Query(value = """
+            UPDATE cards
+            SET balance = balance - :amountMinor / 100.0, version = version + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND owner_id = :ownerId AND status = 'ACTIVE' AND balance >= :amountMinor / 100.0
+            RETURNING masked_number
+            """, nativeQuery = true)
+    Optional<String> debitIfAllowed(@Param("id") UUID id,
+                                    @Param("ownerId") UUID ownerId,
+                                    @Param("amountMinor") long amountMinor);
+
+    /**
+     * Зачисляет сумму на карту, только если карта принадлежит пользователю и активна
+     *
+     * @param amountMinor сумма в копейках, см. {@link com.example.bankcards.money.Money#minorUnits()}
+     * @return маска номера карты или пустой Optional, если условие не выполнено
+     */
+    @Query(value = """
+            UPDATE cards
+            SET balance = balance + :amountMinor / 100.0, version = version + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND owner_id = :ownerId AND status = 'ACTIVE'
+            RETURNING masked_number
+            """, nativeQuery = true)
+    Optional<String> creditIfAllowed(@Param("id") UUID id,
+                                     @Param("ownerId") UUID ownerId,
+                                     @Param("amountMinor") long amountMinor);
+
 }
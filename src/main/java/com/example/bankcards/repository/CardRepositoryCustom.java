@@ -0,0 +1,32 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.Card;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface CardRepositoryCustom {
+
+    /**
+     * Страница карт сразу в виде {@link CardResponse}: ответ собирается выражением конструктора в запросе,
+     * без загрузки сущностей Card и User в контекст персистентности
+     */
+    Page<CardResponse> findResponses(Specification<Card> spec, Pageable pageable);
+
+    /**
+     * То же без запроса COUNT: читается на одну строку больше страницы, чтобы узнать, есть ли следующая
+     */
+    Slice<CardResponse> findResponseSlice(Specification<Card> spec, Pageable pageable);
+
+    /**
+     * Карты строго раньше курсора (createdAt, id), от новых к старым
+     */
+    List<CardResponse> findResponsesBefore(Specification<Card> spec, LocalDateTime createdAt, UUID id, Limit limit);
+}
@@ -0,0 +1,136 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Page<CardResponse> findResponses(Specification<Card> spec, Pageable pageable) {
+        List<CardResponse> content = pagedQuery(spec, pageable, pageable.isPaged() ? pageable.getPageSize() : 0)
+                .getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    @Override
+    public Slice<CardResponse> findResponseSlice(Specification<Card> spec, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(pagedQuery(spec, pageable, 0).getResultList(), pageable, false);
+        }
+        List<CardResponse> content = new ArrayList<>(
+                pagedQuery(spec, pageable, pageable.getPageSize() + 1).getResultList());
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.removeLast();
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    @Override
+    public List<CardResponse> findResponsesBefore(Specification<Card> spec, LocalDateTime createdAt, UUID id,
+                                                  Limit limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardResponse> query = cb.createQuery(CardResponse.class);
+        Root<Card> root = cardRoot(query);
+        Path<LocalDateTime> rootCreatedAt = root.get("createdAt");
+        Path<UUID> rootId = root.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            predicates.add(predicate);
+        }
+        predicates.add(cb.lessThanOrEqualTo(rootCreatedAt, createdAt));
+        predicates.add(cb.or(cb.lessThan(rootCreatedAt, createdAt), cb.lessThan(rootId, id)));
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(cb.desc(rootCreatedAt), cb.desc(rootId));
+
+        TypedQuery<CardResponse> typedQuery = entityManager.createQuery(query);
+        if (limit.isLimited()) {
+            typedQuery.setMaxResults(limit.max());
+        }
+        return typedQuery.getResultList();
+    }
+
+    private TypedQuery<CardResponse> pagedQuery(Specification<Card> spec, Pageable pageable, int maxResults) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardResponse> query = cb.createQuery(CardResponse.class);
+        Root<Card> root = cardRoot(query);
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        TypedQuery<CardResponse> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult(Math.toIntExact(pageable.getOffset()));
+            typedQuery.setMaxResults(maxResults);
+        }
+        return typedQuery;
+    }
+
+    /**
+     * Корень запроса с выражением конструктора {@link CardResponse}
+     */
+    private Root<Card> cardRoot(CriteriaQuery<CardResponse> query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Root<Card> root = query.from(Card.class);
+        Join<Card, User> owner = root.join("owner");
+
+        query.select(cb.construct(CardResponse.class,
+                root.get("id"),
+                root.get("maskedNumber"),
+                root.get("holderName"),
+                owner.get("id"),
+                owner.get("username"),
+                root.get("expiryDate"),
+                root.get("status"),
+                root.get("balance"),
+                root.get("createdAt"),
+                root.get("updatedAt")));
+        return root;
+    }
+
+    private long count(Specification<Card> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Card> root = query.from(Card.class);
+
+        query.select(cb.count(root));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
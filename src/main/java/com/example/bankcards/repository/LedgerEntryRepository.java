@@ -0,0 +1,24 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.LedgerTotals;
+import com.example.bankcards.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    /**
+     * Итоги по записям карты с createdAt в интервале (after, upTo]
+     */
+    @Query("""
+            SELECT new com.example.bankcards.dto.LedgerTotals(COUNT(e), COALESCE(SUM(e.amount), 0), MAX(e.createdAt))
+            FROM LedgerEntry e
+            WHERE e.cardId = :cardId AND e.createdAt > :after AND e.createdAt <= :upTo
+            """)
+    LedgerTotals totalsBetween(UUID cardId, LocalDateTime after, LocalDateTime upTo);
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface LedgerHeadRepository extends JpaRepository<LedgerHead, UUID> {
+
+    /**
+     * Значения счётчиков карты после изменения
+     */
+    interface Counters {
+
+        long getBalanceMinor();
+
+        int getEntriesSinceSnapshot();
+    }
+
+    /**
+     * Добавляет записи журнала к счётчикам карты одним запросом, создавая строку при первой записи
+     *
+     * @param deltaMinor сумма добавленных записей в копейках
+     * @param entries    число добавленных записей
+     */
+    @Query(value = """
+            INSERT INTO ledger_heads (card_id, balance_minor, entries_since_snapshot)
+            VALUES (:cardId, :deltaMinor, :entries)
+            ON CONFLICT (card_id) DO UPDATE
+            SET balance_minor = ledger_heads.balance_minor + EXCLUDED.balance_minor,
+                entries_since_snapshot = ledger_heads.entries_since_snapshot + EXCLUDED.entries_since_snapshot
+            RETURNING balance_minor AS "balanceMinor", entries_since_snapshot AS "entriesSinceSnapshot"
+            """, nativeQuery = true)
+    Counters advance(@Param("cardId") UUID cardId,
+                     @Param("deltaMinor") long deltaMinor,
+                     @Param("entries") int entries);
+
+    /**
+     * Вычитает записи, вошедшие в снимок
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE ledger_heads
+            SET entries_since_snapshot = entries_since_snapshot - :entries
+            WHERE card_id = :cardId
+            """, nativeQuery = true)
+    int markSnapshotted(@Param("cardId") UUID cardId, @Param("entries") int entries);
+
+}
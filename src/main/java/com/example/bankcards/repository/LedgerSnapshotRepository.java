@@ -0,0 +1,15 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface LedgerSnapshotRepository extends JpaRepository<LedgerSnapshot, UUID> {
+
+    Optional<LedgerSnapshot> findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(UUID cardId, LocalDateTime asOf);
+}
@@ -0,0 +1,71 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.TransferIdempotency;
+import com.example.bankcards.entity.TransferIdempotencyId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface TransferIdempotencyRepository extends JpaRepository<TransferIdempotency, TransferIdempotencyId> {
+
+    /**
+     * Занимает ключ идемпотентности. Незавершённая запись старше staleBefore перехватывается:
+     * результат пишется в транзакции перевода, значит, такой перевод не был зафиксирован
+     *
+     * @return 1, если ключ занят этим вызовом, 0, если запись с таким ключом уже есть
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO transfer_idempotency (user_id, idempotency_key, request_hash, status, created_at)
+            VALUES (:userId, :key, :requestHash, 'PENDING', CURRENT_TIMESTAMP)
+            ON CONFLICT (user_id, idempotency_key) DO UPDATE
+            SET request_hash = EXCLUDED.request_hash, created_at = EXCLUDED.created_at
+            WHERE transfer_idempotency.status = 'PENDING' AND transfer_idempotency.created_at < :staleBefore
+            """, nativeQuery = true)
+    int claim(@Param("userId") UUID userId,
+              @Param("key") String key,
+              @Param("requestHash") String requestHash,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Освобождает незавершённый ключ после перевода, который точно не был зафиксирован
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM transfer_idempotency
+            WHERE user_id = :userId AND idempotency_key = :key AND status = 'PENDING'
+            """, nativeQuery = true)
+    int release(@Param("userId") UUID userId, @Param("key") String key);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE transfer_idempotency
+            SET status = 'COMPLETED', transfer_id = :transferId, from_card_masked = :fromCardMasked,
+                to_card_masked = :toCardMasked, amount = :amount, transfer_created_at = :transferCreatedAt
+            WHERE user_id = :userId AND idempotency_key = :key AND status = 'PENDING'
+            """, nativeQuery = true)
+    int complete(@Param("userId") UUID userId,
+                 @Param("key") String key,
+                 @Param("transferId") UUID transferId,
+                 @Param("fromCardMasked") String fromCardMasked,
+                 @Param("toCardMasked") String toCardMasked,
+                 @Param("amount") BigDecimal amount,
+                 @Param("transferCreatedAt") LocalDateTime transferCreatedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TransferIdempotency t WHERE t.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+
+}
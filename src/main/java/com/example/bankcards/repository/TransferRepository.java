@@ -1,11 +1,43 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Transfer;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface TransferRepository extends JpaRepository<Transfer, UUID> {
+
+    /**
+     * Исходящие переводы карты строго раньше курсора (createdAt, id), от новых к старым.
+     * Условие createdAt <= :createdAt задаёт начало диапазона в индексе (from_card_id, created_at, id),
+     * поэтому глубина страницы не влияет на число прочитанных строк
+     */
+    @Query("""
+            SELECT t FROM Transfer t
+            JOIN FETCH t.fromCard JOIN FETCH t.toCard
+            WHERE t.fromCard.id = :cardId
+              AND t.createdAt <= :createdAt
+              AND (t.createdAt < :createdAt OR t.id < :id)
+            ORDER BY t.createdAt DESC, t.id DESC
+            """)
+    List<Transfer> findOutgoingBefore(UUID cardId, LocalDateTime createdAt, UUID id, Limit limit);
+
+    /**
+     * Входящие переводы карты строго раньше курсора (createdAt, id), от новых к старым
+     */
+    @Query("""
+            SELECT t FROM Transfer t
+            JOIN FETCH t.fromCard JOIN FETCH t.toCard
+            WHERE t.toCard.id = :cardId
+              AND t.createdAt <= :createdAt
+              AND (t.createdAt < :createdAt OR t.id < :id)
+            ORDER BY t.createdAt DESC, t.id DESC
+            """)
+    List<Transfer> findIncomingBefore(UUID cardId, LocalDateTime createdAt, UUID id, Limit limit);
 }
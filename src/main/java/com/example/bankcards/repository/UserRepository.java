@@ -1,9 +1,15 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,4 +21,20 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     boolean existsByEmail(String email);
     
     boolean existsByUsername(String email);
+
+    /**
+     * Страница пользователей без запроса COUNT
+     */
+    Slice<User> findAllBy(Pageable pageable);
+
+    /**
+     * Пользователи строго раньше курсора (createdAt, id), от новых к старым
+     */
+    @Query("""
+            SELECT u FROM User u
+            WHERE u.createdAt <= :createdAt
+              AND (u.createdAt < :createdAt OR u.id < :id)
+            ORDER BY u.createdAt DESC, u.id DESC
+            """)
+    List<User> findBefore(LocalDateTime createdAt, UUID id, Limit limit);
 }
@@ -0,0 +1,81 @@
+package com.example.bankcards.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * Подбор параметров Argon2 под целевое время хеширования на текущем железе.
+ * Время хеша растёт примерно пропорционально памяти и числу итераций, поэтому после замера
+ * на нижних границах запас времени сначала тратится на память (удвоением, до верхней границы),
+ * затем на итерации. Ниже заданных границ параметры не опускаются, даже если железо медленное
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+public final class Argon2Calibrator {
+
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int PARALLELISM = 1;
+    private static final int SAMPLES = 3;
+
+    /**
+     * Параметры Argon2
+     *
+     * @param memoryKib  память одного хеша, КиБ
+     * @param iterations число итераций
+     */
+    public record Argon2Parameters(int memoryKib, int iterations) {
+
+        public Argon2PasswordEncoder encoder() {
+            return new Argon2PasswordEncoder(SALT_LENGTH, HASH_LENGTH, PARALLELISM, memoryKib, iterations);
+        }
+    }
+
+    private Argon2Calibrator() {
+    }
+
+    public static Argon2Parameters calibrate(Duration target, int minMemoryKib, int maxMemoryKib,
+                                             int minIterations, int maxIterations) {
+        Argon2Parameters chosen = calibrate(target, minMemoryKib, maxMemoryKib, minIterations, maxIterations,
+                Argon2Calibrator::measure);
+        log.info("Параметры Argon2 подобраны под {} мс: память {} КиБ, итераций {}",
+                target.toMillis(), chosen.memoryKib(), chosen.iterations());
+        return chosen;
+    }
+
+    static Argon2Parameters calibrate(Duration target, int minMemoryKib, int maxMemoryKib,
+                                      int minIterations, int maxIterations,
+                                      ToLongFunction<Argon2Parameters> measureNanos) {
+        Argon2Parameters floor = new Argon2Parameters(minMemoryKib, minIterations);
+        double budget = (double) target.toNanos() / Math.max(1, measureNanos.applyAsLong(floor));
+
+        int memoryKib = minMemoryKib;
+        while (budget >= 2 && memoryKib * 2L <= maxMemoryKib) {
+            memoryKib *= 2;
+            budget /= 2;
+        }
+        int iterations = (int) Math.clamp((long) (minIterations * budget), minIterations, maxIterations);
+        return new Argon2Parameters(memoryKib, iterations);
+    }
+
+    /**
+     * Медиана нескольких хешей после одного прогревочного
+     */
+    private static long measure(Argon2Parameters parameters) {
+        Argon2PasswordEncoder encoder = parameters.encoder();
+        encoder.encode("calibration");
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.security.Argon2Calibrator.Argon2Parameters;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Общие для всех узлов параметры Argon2 в таблице password_hash_parameters. Калибровка выполняется
+ * только на первом узле, который не нашёл сохранённых параметров; если несколько узлов стартуют
+ * одновременно, в таблицу попадает результат одного из них, и все узлы используют именно его.
+ * Чтобы откалибровать заново, строку удаляют и перезапускают узлы
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class Argon2ParameterStore {
+
+    private static final String SELECT = "SELECT memory_kib, iterations FROM password_hash_parameters WHERE id = 1";
+    private static final String INSERT = """
+            INSERT INTO password_hash_parameters (id, memory_kib, iterations, calibrated_at)
+            VALUES (1, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сохранённые параметры или результат калибровки, если параметров ещё нет
+     */
+    public Argon2Parameters loadOrCalibrate(Supplier<Argon2Parameters> calibration) {
+        List<Argon2Parameters> stored = load();
+        if (!stored.isEmpty()) {
+            Argon2Parameters parameters = stored.getFirst();
+            log.info("Параметры Argon2 из базы: память {} КиБ, итераций {}",
+                    parameters.memoryKib(), parameters.iterations());
+            return parameters;
+        }
+
+        Argon2Parameters calibrated = calibration.get();
+        jdbcTemplate.update(INSERT, calibrated.memoryKib(), calibrated.iterations(), Timestamp.from(Instant.now()));
+        Argon2Parameters shared = load().getFirst();
+        if (!shared.equals(calibrated)) {
+            log.info("Параметры Argon2 уже сохранены другим узлом: память {} КиБ, итераций {}",
+                    shared.memoryKib(), shared.iterations());
+        }
+        return shared;
+    }
+
+    private List<Argon2Parameters> load() {
+        return jdbcTemplate.query(SELECT,
+                (rs, rowNum) -> new Argon2Parameters(rs.getInt("memory_kib"), rs.getInt("iterations")));
+    }
+}
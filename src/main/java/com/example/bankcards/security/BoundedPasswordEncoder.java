@@ -0,0 +1,156 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Хеширование и проверка паролей в отдельном пуле ограниченного размера.
+ * Каждый хеш Argon2 занимает memoryBytes памяти, поэтому число одновременных хешей ограничено
+ * app.password-hashing.concurrency, а не числом потоков запросов. Если очередь заполнена или задача
+ * ждала в ней дольше app.password-hashing.max-queue-wait, запрос сразу получает 429 и хеш не считается
+ *
+ * @author Владислав Степанов
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final long maxQueueWaitNanos;
+    private final LongSupplier nanoTime;
+    private final ThreadPoolExecutor executor;
+    private final Timer queueWait;
+    private final Timer encodeTime;
+    private final Timer matchTime;
+    private final Counter rejected;
+    /**
+     * Число выполняемых хешей. getActiveCount пула для этого не подходит: он считает и заранее запущенные
+     * потоки, которые ещё не начали ждать задачу
+     */
+    private final AtomicInteger hashing = new AtomicInteger();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate,
+                                  long memoryBytes,
+                                  int concurrency,
+                                  int queueCapacity,
+                                  Duration maxQueueWait,
+                                  MeterRegistry meterRegistry) {
+        this(delegate, memoryBytes, concurrency, new ArrayBlockingQueue<>(queueCapacity), maxQueueWait,
+                meterRegistry, System::nanoTime);
+    }
+
+    BoundedPasswordEncoder(PasswordEncoder delegate,
+                           long memoryBytes,
+                           int concurrency,
+                           BlockingQueue<Runnable> queue,
+                           Duration maxQueueWait,
+                           MeterRegistry meterRegistry,
+                           LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.nanoTime = nanoTime;
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                queue,
+                Thread.ofPlatform().name("password-hash-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.prestartAllCoreThreads();
+
+        this.queueWait = Timer.builder("bank.password.hash.queue.wait")
+                .description("Ожидание хеширования пароля в очереди")
+                .register(meterRegistry);
+        this.encodeTime = Timer.builder("bank.password.hash.duration")
+                .description("Время хеширования и проверки пароля")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchTime = Timer.builder("bank.password.hash.duration")
+                .description("Время хеширования и проверки пароля")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bank.password.hash.rejected")
+                .description("Хеширования паролей, отклонённые из-за перегрузки")
+                .register(meterRegistry);
+        Gauge.builder("bank.password.hash.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Хеширования паролей, ожидающие выполнения")
+                .register(meterRegistry);
+        Gauge.builder("bank.password.hash.memory.inflight", hashing, count -> (double) count.get() * memoryBytes)
+                .description("Память, занятая выполняемыми хешами паролей")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword), encodeTime);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword), matchTime);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Остановка пула вместе с контекстом приложения
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> hash, Timer hashTime) {
+        long submittedAt = nanoTime.getAsLong();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long waited = nanoTime.getAsLong() - submittedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxQueueWaitNanos) {
+                    throw new TooManyRequestsException("Сервис перегружен, повторите попытку позже");
+                }
+                hashing.incrementAndGet();
+                try {
+                    return hashTime.recordCallable(hash);
+                } finally {
+                    hashing.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Сервис перегружен, повторите попытку позже");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new IllegalStateException("Ожидание хеширования пароля прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TooManyRequestsException overloaded) {
+                rejected.increment();
+                throw overloaded;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Ошибка хеширования пароля", e.getCause());
+        }
+    }
+}
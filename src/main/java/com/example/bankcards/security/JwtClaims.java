@@ -0,0 +1,28 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.enums.UserRole;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Данные проверенного JWT токена
+ *
+ * @param userId       id пользователя
+ * @param username     subject токена
+ * @param role         роль пользователя на момент выдачи токена
+ * @param tokenVersion версия токенов пользователя на момент выдачи токена
+ * @param expiresAt    момент истечения токена
+ */
+public record JwtClaims(
+        UUID userId,
+        String username,
+        UserRole role,
+        int tokenVersion,
+        Instant expiresAt
+) {
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
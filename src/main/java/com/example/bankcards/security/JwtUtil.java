@@ -1,23 +1,42 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.enums.UserRole;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
- * Класс для управления JWT токеном (создание, извлечение данных, проверок)
+ * Класс для управления JWT токеном (создание, извлечение данных, проверок).
+ * Токен разбирается и проверяется один раз одним заранее собранным парсером. Результат хранится в кеше
+ * по SHA-256 токена до истечения срока токена, поэтому повторные запросы с тем же токеном
+ * не проверяют подпись заново. Сами токены в кеше не хранятся.
+ * Токен содержит id, роль и версию токенов пользователя, поэтому пользователь запроса
+ * строится из токена без чтения из базы
  *
  * @author Владислав Степанов
  */
@@ -25,34 +44,69 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+    static final String TOKEN_VERSION_CLAIM = "ver";
+
     private final SecretKey signingKey;
     private final long expirationMs;
+    private final JwtParser parser;
+    private final boolean cacheEnabled;
+    private final Cache<TokenDigest, JwtClaims> verified;
 
     public JwtUtil(
             @Value("${app.jwt.secret}") String secret,
-            @Value("${app.jwt.expiration}") long expirationMs
+            @Value("${app.jwt.expiration}") long expirationMs,
+            MeterRegistry meterRegistry,
+            @Value("${app.jwt.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${app.jwt.cache.max-size:10000}") long cacheMaxSize
     ) {
         this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.cacheEnabled = cacheEnabled;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(Expiry.<TokenDigest, JwtClaims>creating(
+                        (digest, claims) -> Duration.between(Instant.now(), claims.expiresAt())))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt");
     }
 
-    public String generateToken(UserDetails userDetails) {
+    public String generateToken(UserPrincipal principal) {
         Map<String, Object> claims = new HashMap<>();
-        return buildToken(claims, userDetails.getUsername());
+        claims.put(USER_ID_CLAIM, principal.getId().toString());
+        claims.put(ROLE_CLAIM, principal.getRole().name());
+        claims.put(TOKEN_VERSION_CLAIM, principal.getTokenVersion());
+        return buildToken(claims, principal.getUsername());
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    /**
+     * Проверка подписи и срока действия токена
+     *
+     * @param token - JWT токен из заголовка Authorization
+     * @return данные токена или пустой Optional, если токен недействителен
+     */
+    public Optional<JwtClaims> validate(String token) {
+        TokenDigest digest = cacheEnabled ? TokenDigest.of(token) : null;
+        JwtClaims claims = digest != null ? verified.getIfPresent(digest) : null;
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        try {
-            String username = extractUsername(token);
-            return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-        } catch (JwtException | IllegalArgumentException e) {
-            log.warn("Некорректный JWT токен: {}", e.getMessage());
-            return false;
+        if (claims == null) {
+            try {
+                claims = parse(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                log.warn("Некорректный JWT токен: {}", e.getMessage());
+                return Optional.empty();
+            }
+            if (digest != null) {
+                verified.put(digest, claims);
+            }
         }
+        return claims.isExpired(Instant.now()) ? Optional.empty() : Optional.of(claims);
     }
 
     private String buildToken(Map<String, Object> extraClaims, String subject) {
@@ -65,22 +119,17 @@ public class JwtUtil {
                 .compact();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        Claims claims = Jwts.parser()
-                .verifyWith(signingKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claimsResolver.apply(claims);
+    private JwtClaims parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        Integer tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        if (claims.getSubject() == null || claims.getExpiration() == null
+                || userId == null || role == null || tokenVersion == null) {
+            throw new MalformedJwtException("В токене нет данных пользователя или срока действия");
+        }
+        return new JwtClaims(UUID.fromString(userId), claims.getSubject(), UserRole.valueOf(role),
+                tokenVersion, claims.getExpiration().toInstant());
     }
 
     private byte[] hexStringToByteArray(String hex) {
@@ -92,4 +141,20 @@ public class JwtUtil {
         }
         return data;
     }
+
+    /**
+     * Ключ кеша: SHA-256 токена, 32 байта вместо строки токена
+     */
+    private record TokenDigest(long first, long second, long third, long fourth) {
+
+        static TokenDigest of(String token) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+                ByteBuffer buffer = ByteBuffer.wrap(hash);
+                return new TokenDigest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 недоступен", e);
+            }
+        }
+    }
 }
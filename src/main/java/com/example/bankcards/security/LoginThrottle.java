@@ -0,0 +1,160 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничение попыток входа по имени пользователя и по IP клиента до проверки пароля.
+ * Обе попытки списываются атомарно до проверки пароля, поэтому параллельные попытки для одного имени
+ * не проходят сверх лимита. После успешного входа попытка по имени возвращается: лимит имени расходуют
+ * только неудачные входы, причём с любого адреса, так что чужой перебор может временно заблокировать владельца.
+ * Для каждого измерения есть фиксированный массив корзин (token bucket в форме GCRA): ключ попадает
+ * в корзину по SipHash со случайным ключом, корзина хранит одно число — момент, когда она снова будет полной,
+ * и обновляется через CAS без блокировок. Память не зависит от числа ключей; ключи, попавшие в одну корзину,
+ * делят её лимит. Отказ стоит одного чтения массива, поэтому перебор паролей не доходит до Argon2
+ *
+ * @author Владислав Степанов
+ */
+@Component
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final LongSupplier clock;
+    private final Buckets byUsername;
+    private final Buckets byIp;
+
+    @Autowired
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${app.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${app.login-throttle.buckets:65536}") int buckets,
+                         @Value("${app.login-throttle.username.burst:5}") int usernameBurst,
+                         @Value("${app.login-throttle.username.per-minute:5}") int usernamePerMinute,
+                         @Value("${app.login-throttle.ip.burst:20}") int ipBurst,
+                         @Value("${app.login-throttle.ip.per-minute:60}") int ipPerMinute) {
+        this(meterRegistry, enabled, buckets, usernameBurst, usernamePerMinute, ipBurst, ipPerMinute,
+                System::nanoTime);
+    }
+
+    LoginThrottle(MeterRegistry meterRegistry, boolean enabled, int buckets,
+                  int usernameBurst, int usernamePerMinute, int ipBurst, int ipPerMinute,
+                  LongSupplier clock) {
+        long origin = clock.getAsLong();
+        this.enabled = enabled;
+        this.clock = () -> clock.getAsLong() - origin;
+        this.byUsername = new Buckets(buckets, usernameBurst, usernamePerMinute,
+                rejections(meterRegistry, "username"));
+        this.byIp = new Buckets(buckets, ipBurst, ipPerMinute, rejections(meterRegistry, "ip"));
+    }
+
+    /**
+     * Списание попытки входа до проверки пароля. Сначала без списания проверяется IP, затем
+     * атомарно занимается попытка по имени и списывается попытка IP; если IP отказал, попытка
+     * по имени возвращается, поэтому отказ одного лимита не расходует другой
+     *
+     * @throws TooManyRequestsException если для IP или имени пользователя исчерпан лимит
+     */
+    public void acquire(String username, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (!byIp.allows(clientIp, now) || !byUsername.tryAcquire(username, now)) {
+            throw new TooManyRequestsException("Слишком много попыток входа, повторите попытку позже");
+        }
+        if (!byIp.tryAcquire(clientIp, now)) {
+            byUsername.refund(username, now);
+            throw new TooManyRequestsException("Слишком много попыток входа, повторите попытку позже");
+        }
+    }
+
+    /**
+     * Возврат попытки по имени пользователя после успешного входа
+     */
+    public void recordSuccess(String username) {
+        if (enabled) {
+            byUsername.refund(username, clock.getAsLong());
+        }
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String key) {
+        return Counter.builder("bank.auth.login.throttled")
+                .description("Попытки входа, отклонённые ограничением частоты")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Корзины одного измерения. В ячейке хранится theoretical arrival time: попытка разрешена,
+     * если он опережает текущий момент не больше чем на (burst - 1) интервалов, и сдвигает его на интервал
+     */
+    private static final class Buckets {
+
+        private final AtomicLongArray arrivals;
+        private final int mask;
+        private final SipHash hash = new SipHash();
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private final Counter rejected;
+
+        Buckets(int size, int burst, int perMinute, Counter rejected) {
+            int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+            this.arrivals = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            this.intervalNanos = Duration.ofMinutes(1).toNanos() / perMinute;
+            this.toleranceNanos = (burst - 1) * intervalNanos;
+            this.rejected = rejected;
+        }
+
+        /**
+         * Проверка без списания
+         */
+        boolean allows(String key, long now) {
+            if (Math.max(arrivals.get(index(key)), now) - now > toleranceNanos) {
+                rejected.increment();
+                return false;
+            }
+            return true;
+        }
+
+        boolean tryAcquire(String key, long now) {
+            int index = index(key);
+            while (true) {
+                long arrival = arrivals.get(index);
+                long start = Math.max(arrival, now);
+                if (start - now > toleranceNanos) {
+                    rejected.increment();
+                    return false;
+                }
+                if (arrivals.compareAndSet(index, arrival, start + intervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Возврат занятой попытки. Корзина не становится полнее, чем была бы без этой попытки
+         */
+        void refund(String key, long now) {
+            int index = index(key);
+            while (true) {
+                long arrival = arrivals.get(index);
+                if (arrival <= now
+                        || arrivals.compareAndSet(index, arrival, Math.max(arrival - intervalNanos, now))) {
+                    return;
+                }
+            }
+        }
+
+        private int index(String key) {
+            return (int) hash.hash(key) & mask;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+/**
+ * Ключевой хеш SipHash-2-4 со случайным 128-битным ключом. Без знания ключа нельзя подобрать строки,
+ * которые попадут в одну корзину, в отличие от String.hashCode, коллизии которого не зависят от соли
+ *
+ * @author Владислав Степанов
+ */
+final class SipHash {
+
+    private final long k0;
+    private final long k1;
+
+    SipHash() {
+        SecureRandom random = new SecureRandom();
+        this.k0 = random.nextLong();
+        this.k1 = random.nextLong();
+    }
+
+    SipHash(long k0, long k1) {
+        this.k0 = k0;
+        this.k1 = k1;
+    }
+
+    long hash(String key) {
+        return hash(key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    long hash(byte[] data) {
+        long[] v = {
+                k0 ^ 0x736f6d6570736575L,
+                k1 ^ 0x646f72616e646f6dL,
+                k0 ^ 0x6c7967656e657261L,
+                k1 ^ 0x7465646279746573L
+        };
+
+        int blocks = data.length & ~7;
+        for (int offset = 0; offset < blocks; offset += 8) {
+            compress(v, littleEndian(data, offset, 8));
+        }
+        compress(v, ((long) data.length << 56) | littleEndian(data, blocks, data.length - blocks));
+
+        v[2] ^= 0xff;
+        rounds(v, 4);
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    private static void compress(long[] v, long m) {
+        v[3] ^= m;
+        rounds(v, 2);
+        v[0] ^= m;
+    }
+
+    private static void rounds(long[] v, int count) {
+        for (int i = 0; i < count; i++) {
+            v[0] += v[1];
+            v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+            v[0] = Long.rotateLeft(v[0], 32);
+            v[2] += v[3];
+            v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+            v[0] += v[3];
+            v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+            v[2] += v[1];
+            v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+            v[2] = Long.rotateLeft(v[2], 32);
+        }
+    }
+
+    private static long littleEndian(byte[] data, int offset, int length) {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | (data[offset + i] & 0xffL);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bankcards.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отозванные JWT токены: для каждого пользователя, чьи токены отзывались, хранится минимальная
+ * действующая версия токенов. Токен с меньшей версией отклоняется.
+ * <p>
+ * Запись нужна, только пока живут токены, выданные до отзыва, поэтому через app.jwt.expiration
+ * после отзыва она удаляется и список остаётся маленьким. Отзывы других узлов и отзывы до перезапуска
+ * подгружаются из users.token_version по расписанию app.jwt.revocation.refresh-interval
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Component
+public class TokenRevocationList {
+
+    private static final String RECENTLY_REVOKED = """
+            SELECT id, token_version, updated_at
+            FROM users
+            WHERE token_version > 0 AND updated_at > ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration tokenLifetime;
+    private final Map<UUID, Revocation> revocations = new ConcurrentHashMap<>();
+
+    public TokenRevocationList(JdbcTemplate jdbcTemplate,
+                               @Value("${app.jwt.expiration}") long expirationMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenLifetime = Duration.ofMillis(expirationMs);
+    }
+
+    /**
+     * @return true, если токен с этой версией выдан до отзыва токенов пользователя
+     */
+    public boolean isRevoked(UUID userId, int tokenVersion) {
+        Revocation revocation = revocations.get(userId);
+        return revocation != null && tokenVersion < revocation.minVersion();
+    }
+
+    /**
+     * Отзыв токенов пользователя с версией меньше указанной. Внутри транзакции применяется после коммита
+     */
+    public void revoke(UUID userId, int minVersion) {
+        Runnable change = () -> add(userId, minVersion, Instant.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Подгрузка отзывов, сделанных за время жизни токена, и удаление устаревших записей
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.refresh-interval:30s}")
+    public void refresh() {
+        Instant cutoff = Instant.now().minus(tokenLifetime);
+        jdbcTemplate.query(RECENTLY_REVOKED, rs -> {
+            add(rs.getObject(1, UUID.class), rs.getInt(2), rs.getTimestamp(3).toInstant());
+        }, Timestamp.from(cutoff));
+        revocations.values().removeIf(revocation -> revocation.revokedAt().isBefore(cutoff));
+        log.debug("Отозванных токенов пользователей: {}", revocations.size());
+    }
+
+    int size() {
+        return revocations.size();
+    }
+
+    private void add(UUID userId, int minVersion, Instant revokedAt) {
+        revocations.merge(userId, new Revocation(minVersion, revokedAt),
+                (current, added) -> added.minVersion() > current.minVersion() ? added : current);
+    }
+
+    private record Revocation(int minVersion, Instant revokedAt) {
+    }
+}
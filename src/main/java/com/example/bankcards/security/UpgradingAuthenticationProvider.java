@@ -0,0 +1,61 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Collection;
+
+/**
+ * Вход по паролю с пересчётом хеша со слабыми параметрами через {@link UserDetailsPasswordService}.
+ * Пересчёт необязателен: если пул хеширования отклонил его из-за перегрузки, вход не отклоняется,
+ * а хеш пересчитается при следующем входе
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+public class UpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    public <T extends UserDetailsService & UserDetailsPasswordService> UpgradingAuthenticationProvider(T userDetailsService) {
+        super(userDetailsService);
+        setUserDetailsPasswordService(userDetailsService);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                         UserDetails user) {
+        try {
+            return super.createSuccessAuthentication(principal, authentication, user);
+        } catch (TooManyRequestsException e) {
+            log.debug("Пересчёт хеша пароля {} отложен: пул хеширования перегружен", user.getUsername());
+            return super.createSuccessAuthentication(principal, authentication, withoutPassword(user));
+        }
+    }
+
+    /**
+     * Пользователь без хеша: для него пересчёт не запускается
+     */
+    private static UserDetails withoutPassword(UserDetails user) {
+        return new UserDetails() {
+            @Override
+            public Collection<? extends GrantedAuthority> getAuthorities() {
+                return user.getAuthorities();
+            }
+
+            @Override
+            public String getPassword() {
+                return null;
+            }
+
+            @Override
+            public String getUsername() {
+                return user.getUsername();
+            }
+        };
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.UserRole;
 import lombok.Getter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -17,6 +18,10 @@ public class UserPrincipal implements UserDetails {
     private final String username;
     private final String password;
     private final boolean enabled;
+    @Getter
+    private final UserRole role;
+    @Getter
+    private final int tokenVersion;
     private final Collection<? extends GrantedAuthority> authorities;
 
     public UserPrincipal(User user) {
@@ -24,9 +29,24 @@ public class UserPrincipal implements UserDetails {
         this.username = user.getUsername();
         this.password = user.getPassword();
         this.enabled = user.isEnabled();
+        this.role = user.getRole();
+        this.tokenVersion = user.getTokenVersion();
         this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
     }
 
+    /**
+     * Пользователь из проверенного JWT токена, без обращения к базе. Пароля у такого пользователя нет
+     */
+    public UserPrincipal(JwtClaims claims) {
+        this.id = claims.userId();
+        this.username = claims.username();
+        this.password = null;
+        this.enabled = true;
+        this.role = claims.role();
+        this.tokenVersion = claims.tokenVersion();
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + claims.role().name()));
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -0,0 +1,155 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AsyncTransferStatusResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.enums.AsyncTransferStatus;
+import com.example.bankcards.exception.AccessDeniedException;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.DuplicateResourceException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронные переводы: запрос сразу получает id, а перевод выполняется в ограниченной очереди
+ * на виртуальных потоках. Число одновременно выполняемых переводов ограничено, чтобы всплеск запросов
+ * не выбирал весь пул соединений; при заполненной очереди клиент получает 429.
+ * Статусы хранятся в памяти узла. Принятые и выполняемые переводы лежат в отдельной карте без вытеснения:
+ * их число и так ограничено очередью и числом потоков, поэтому принятый перевод не теряет статус.
+ * Завершённые переводы хранятся в течение app.transfer.async.retention, не больше
+ * app.transfer.async.max-completed. Статус виден только на узле,
+ * принявшем перевод, поэтому при нескольких экземплярах запросы статуса должны попадать на тот же узел
+ * (sticky routing по пользователю), иначе клиент получит 404
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class AsyncTransferService {
+
+    private final TransferEngine transferEngine;
+    private final ThreadPoolExecutor executor;
+    private final Map<UUID, Submission> inFlight = new ConcurrentHashMap<>();
+    private final Cache<UUID, Submission> completed;
+    private final Counter rejected;
+
+    public AsyncTransferService(TransferEngine transferEngine,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.transfer.async.concurrency:8}") int concurrency,
+                                @Value("${app.transfer.async.queue-capacity:10000}") int queueCapacity,
+                                @Value("${app.transfer.async.max-completed:10000}") int maxCompleted,
+                                @Value("${app.transfer.async.retention:1h}") Duration retention) {
+        this.transferEngine = transferEngine;
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("transfer-async-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxCompleted)
+                .expireAfterWrite(retention)
+                .build();
+
+        Gauge.builder("bank.transfer.async.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Асинхронные переводы, ожидающие выполнения")
+                .register(meterRegistry);
+        Gauge.builder("bank.transfer.async.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Асинхронные переводы, выполняемые в данный момент")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bank.transfer.async.rejected")
+                .description("Асинхронные переводы, отклонённые из-за заполненной очереди")
+                .register(meterRegistry);
+    }
+
+    public AsyncTransferStatusResponse submit(TransferRequest request, UUID currentUserId, String idempotencyKey) {
+        UUID id = UUID.randomUUID();
+        AsyncTransferStatusResponse pending = AsyncTransferStatusResponse.builder()
+                .id(id)
+                .status(AsyncTransferStatus.PENDING)
+                .submittedAt(LocalDateTime.now())
+                .build();
+        inFlight.put(id, new Submission(currentUserId, pending));
+
+        try {
+            executor.execute(() -> run(id, request, currentUserId, idempotencyKey));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id);
+            rejected.increment();
+            throw new TooManyRequestsException("Очередь переводов заполнена, повторите попытку позже");
+        }
+        return pending;
+    }
+
+    public AsyncTransferStatusResponse getStatus(UUID id, UUID currentUserId) {
+        Submission submission = inFlight.get(id);
+        if (submission == null) {
+            submission = completed.getIfPresent(id);
+        }
+        if (submission == null) {
+            throw new ResourceNotFoundException("Перевод с id: " + id + " не найден");
+        }
+        if (!submission.ownerId().equals(currentUserId)) {
+            throw new AccessDeniedException("Доступ к данному переводу запрещён");
+        }
+        return submission.status();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(UUID id, TransferRequest request, UUID currentUserId, String idempotencyKey) {
+        try {
+            TransferResponse transfer = transferEngine.transfer(request, currentUserId, idempotencyKey);
+            finish(id, AsyncTransferStatus.COMPLETED, transfer, null);
+        } catch (ResourceNotFoundException | AccessDeniedException | CardOperationException
+                 | InsufficientFundsException | DuplicateResourceException | TransferConflictException
+                 | TooManyRequestsException e) {
+            finish(id, AsyncTransferStatus.FAILED, null, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при выполнении асинхронного перевода {}", id, e);
+            finish(id, AsyncTransferStatus.FAILED, null, "Внутренняя ошибка при выполнении перевода");
+        }
+    }
+
+    /**
+     * Перенос статуса в завершённые. Статус сначала появляется среди завершённых и только потом
+     * удаляется из выполняемых, поэтому запрос статуса всегда находит его в одном из двух мест
+     */
+    private void finish(UUID id, AsyncTransferStatus status, TransferResponse transfer, String error) {
+        Submission submission = inFlight.get(id);
+        completed.put(id, new Submission(
+                submission.ownerId(),
+                submission.status().toBuilder()
+                        .status(status)
+                        .transfer(transfer)
+                        .error(error)
+                        .completedAt(LocalDateTime.now())
+                        .build()));
+        inFlight.remove(id);
+    }
+
+    private record Submission(UUID ownerId, AsyncTransferStatusResponse status) {
+    }
+}
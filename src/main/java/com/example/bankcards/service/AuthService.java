@@ -8,6 +8,7 @@ import com.example.bankcards.enums.UserRole;
 import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.LoginThrottle;
 import com.example.bankcards.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -27,11 +28,21 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final LoginThrottle loginThrottle;
+
+    /**
+     * Вход по имени и паролю. Попытка списывается до проверки пароля,
+     * после успешного входа попытка по имени пользователя возвращается
+     *
+     * @param clientIp - адрес клиента для ограничения попыток входа
+     */
+    public AuthResponse login(LoginRequest loginRequest, String clientIp) {
+        loginThrottle.acquire(loginRequest.username(), clientIp);
 
-    public AuthResponse login(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.username(), loginRequest.password())
         );
+        loginThrottle.recordSuccess(loginRequest.username());
 
         UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
         String token = jwtUtil.generateToken(principal);
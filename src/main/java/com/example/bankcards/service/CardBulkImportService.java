@@ -0,0 +1,332 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardImportError;
+import com.example.bankcards.dto.BulkCardImportResponse;
+import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.util.CardEncryptionUtil;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Массовый выпуск карт из CSV со строками ownerId,cardNumber,holderName,expiryDate,initialBalance.
+ * Файл читается построчно: строки проверяются сразу при чтении, корректные копятся в пачку
+ * из app.card-bulk.chunk-size строк. Номера пачки шифруются параллельно на всех ядрах,
+ * владельцы и дубликаты номеров проверяются одним запросом на пачку, а карты и записи журнала
+ * вставляются одним INSERT из массивов в отдельной транзакции. Время выпуска карт и записей журнала
+ * берётся из часов приложения, как у карт и записей, сохраняемых через JPA.
+ * В памяти одновременно находится только одна пачка.
+ * <p>
+ * Пачки, записанные до сбоя базы, остаются в ней; при повторной загрузке того же файла
+ * уже выпущенные карты попадут в отчёт как дубликаты
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class CardBulkImportService {
+
+    static final String HEADER_PREFIX = "ownerid";
+    private static final int COLUMNS = 5;
+
+    /**
+     * Номер, выпущенный параллельной загрузкой после проверки дубликатов, пропускается, и его id
+     * не возвращается. Число изменённых строк из пакетного INSERT для этого не подходит: с
+     * reWriteBatchedInserts драйвер возвращает SUCCESS_NO_INFO вместо числа строк
+     */
+    private static final String INSERT_CARDS = """
+            INSERT INTO cards (id, encrypted_number, number_hash, masked_number, owner_id, holder_name,
+                               expiry_date, status, balance, version, created_at)
+            SELECT id, encrypted_number, number_hash, masked_number, owner_id, holder_name,
+                   expiry_date, ?, balance, 0, ?
+            FROM unnest(?::UUID[], ?::VARCHAR[], ?::VARCHAR[], ?::VARCHAR[], ?::UUID[], ?::VARCHAR[],
+                        ?::DATE[], ?::NUMERIC[])
+                AS c(id, encrypted_number, number_hash, masked_number, owner_id, holder_name, expiry_date, balance)
+            ON CONFLICT (number_hash) DO NOTHING
+            RETURNING id
+            """;
+
+    private static final String INSERT_OPENING_ENTRIES = """
+            INSERT INTO ledger_entries (id, card_id, transfer_id, entry_type, amount, created_at)
+            SELECT nextval('ledger_entries_seq'), id, NULL, 'OPENING', balance, ?
+            FROM cards
+            WHERE id = ANY(?)
+            """;
+
+    private static final String INSERT_LEDGER_HEADS = """
+            INSERT INTO ledger_heads (card_id, balance_minor, entries_since_snapshot)
+            SELECT id, (balance * 100)::BIGINT, 1
+            FROM cards
+            WHERE id = ANY(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardEncryptionUtil cardEncryptionUtil;
+    private final CardStatsService cardStatsService;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public CardBulkImportService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 CardEncryptionUtil cardEncryptionUtil,
+                                 CardStatsService cardStatsService,
+                                 Validator validator,
+                                 @Value("${app.card-bulk.chunk-size:1000}") int chunkSize,
+                                 @Value("${app.card-bulk.max-errors:1000}") int maxErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardEncryptionUtil = cardEncryptionUtil;
+        this.cardStatsService = cardStatsService;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public BulkCardImportResponse importCsv(InputStream in) throws IOException {
+        Report report = new Report(maxErrors);
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || lineNumber == 1 && isHeader(line)) {
+                continue;
+            }
+            report.total++;
+            try {
+                chunk.add(new Row(lineNumber, parse(line)));
+            } catch (IllegalArgumentException e) {
+                report.fail(lineNumber, e.getMessage());
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                issue(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            issue(chunk, report);
+        }
+
+        report.errors.sort(Comparator.comparingLong(BulkCardImportError::line));
+        log.info("Массовый выпуск карт: строк {}, выпущено {}, с ошибками {}",
+                report.total, report.created, report.failed);
+        return BulkCardImportResponse.builder()
+                .total(report.total)
+                .created(report.created)
+                .failed(report.failed)
+                .errors(report.errors)
+                .build();
+    }
+
+    /**
+     * Разбор и проверка строки теми же ограничениями, что и у POST /api/v1/cards
+     *
+     * @throws IllegalArgumentException с описанием ошибки, если строка некорректна
+     */
+    CreateCardRequest parse(String line) {
+        List<String> columns = split(line);
+        if (columns.size() != COLUMNS) {
+            throw new IllegalArgumentException(
+                    "Ожидается " + COLUMNS + " колонок, получено " + columns.size());
+        }
+
+        CreateCardRequest request = new CreateCardRequest(
+                parseOwnerId(columns.get(0)),
+                columns.get(1),
+                columns.get(2),
+                parseExpiryDate(columns.get(3)),
+                parseBalance(columns.get(4)));
+
+        Set<ConstraintViolation<CreateCardRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return request;
+    }
+
+    private void issue(List<Row> chunk, Report report) {
+        List<PreparedCard> cards = chunk.parallelStream()
+                .map(this::prepare)
+                .toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<UUID> owners = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE id = ANY(?)", UUID.class,
+                    (Object) cards.stream().map(card -> card.request().ownerId()).distinct().toArray(UUID[]::new)));
+            Set<String> issuedHashes = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT number_hash FROM cards WHERE number_hash = ANY(?)", String.class,
+                    (Object) cards.stream().map(PreparedCard::numberHash).toArray(String[]::new)));
+
+            List<PreparedCard> accepted = new ArrayList<>(cards.size());
+            for (PreparedCard card : cards) {
+                if (!owners.contains(card.request().ownerId())) {
+                    report.fail(card.line(), "Пользователь с id: " + card.request().ownerId() + " не найден");
+                } else if (!issuedHashes.add(card.numberHash())) {
+                    report.fail(card.line(), "Карта с таким номером уже выпущена");
+                } else {
+                    accepted.add(card);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return;
+            }
+
+            LocalDateTime createdAt = LocalDateTime.now();
+            Set<UUID> inserted = new HashSet<>(jdbcTemplate.queryForList(INSERT_CARDS, UUID.class,
+                    CardStatus.ACTIVE.name(),
+                    Timestamp.valueOf(createdAt),
+                    accepted.stream().map(PreparedCard::id).toArray(UUID[]::new),
+                    accepted.stream().map(PreparedCard::encryptedNumber).toArray(String[]::new),
+                    accepted.stream().map(PreparedCard::numberHash).toArray(String[]::new),
+                    accepted.stream().map(PreparedCard::maskedNumber).toArray(String[]::new),
+                    accepted.stream().map(card -> card.request().ownerId()).toArray(UUID[]::new),
+                    accepted.stream().map(card -> card.request().holderName()).toArray(String[]::new),
+                    accepted.stream().map(card -> card.request().expiryDate().toString()).toArray(String[]::new),
+                    accepted.stream().map(card -> card.request().initialBalance().toDecimal().toPlainString())
+                            .toArray(String[]::new)));
+
+            long insertedBalance = 0;
+            for (PreparedCard card : accepted) {
+                if (inserted.contains(card.id())) {
+                    insertedBalance += card.request().initialBalance().minorUnits();
+                } else {
+                    report.fail(card.line(), "Карта с таким номером уже выпущена");
+                }
+            }
+            UUID[] insertedIds = inserted.toArray(UUID[]::new);
+            jdbcTemplate.update(INSERT_OPENING_ENTRIES, Timestamp.valueOf(createdAt), insertedIds);
+            jdbcTemplate.update(INSERT_LEDGER_HEADS, (Object) insertedIds);
+            cardStatsService.cardsIssued(CardStatus.ACTIVE, inserted.size(), insertedBalance, createdAt.toLocalDate());
+            report.created += inserted.size();
+        });
+    }
+
+    private PreparedCard prepare(Row row) {
+        String cardNumber = row.request().cardNumber();
+        return new PreparedCard(
+                row.line(),
+                row.request(),
+                UUID.randomUUID(),
+                cardEncryptionUtil.encrypt(cardNumber),
+                cardEncryptionUtil.hash(cardNumber),
+                cardEncryptionUtil.mask(cardNumber));
+    }
+
+    private static UUID parseOwnerId(String value) {
+        try {
+            return value.isEmpty() ? null : UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный ID владельца: " + value);
+        }
+    }
+
+    private static LocalDate parseExpiryDate(String value) {
+        try {
+            return value.isEmpty() ? null : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректная дата окончания действия: " + value);
+        }
+    }
+
+    private static Money parseBalance(String value) {
+        try {
+            return value.isEmpty() ? null : Money.parse(value);
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный начальный баланс: " + value);
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        return line.strip().toLowerCase().startsWith(HEADER_PREFIX);
+    }
+
+    /**
+     * Разбор строки CSV: значения могут быть в двойных кавычках, кавычка внутри них удваивается
+     */
+    static List<String> split(String line) {
+        List<String> columns = new ArrayList<>(COLUMNS);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                columns.add(value.toString().strip());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        columns.add(value.toString().strip());
+        return columns;
+    }
+
+    private record Row(long line, CreateCardRequest request) {
+    }
+
+    private record PreparedCard(long line, CreateCardRequest request, UUID id,
+                                String encryptedNumber, String numberHash, String maskedNumber) {
+    }
+
+    private static final class Report {
+
+        private final int maxErrors;
+        private final List<BulkCardImportError> errors = new ArrayList<>();
+        private long total;
+        private long created;
+        private long failed;
+
+        private Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void fail(long line, String error) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new BulkCardImportError(line, error));
+            }
+        }
+    }
+}
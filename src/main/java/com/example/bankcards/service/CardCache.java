@@ -0,0 +1,65 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Кеш ответов по карте для частых запросов GET /cards/{id}. Запись удаляется при каждом изменении карты:
+ * сразу и повторно после завершения транзакции, чтобы параллельное чтение не вернуло в кеш состояние до коммита.
+ * Проверка владельца выполняется вызывающим кодом и на попадании в кеш
+ *
+ * @author Владислав Степанов
+ */
+@Component
+public class CardCache {
+
+    private final boolean enabled;
+    private final Cache<UUID, CardResponse> cards;
+
+    public CardCache(MeterRegistry meterRegistry,
+                     @Value("${app.card-cache.enabled:true}") boolean enabled,
+                     @Value("${app.card-cache.max-size:10000}") long maxSize,
+                     @Value("${app.card-cache.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.cards = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cards, "cards");
+    }
+
+    public CardResponse get(UUID cardId, Function<UUID, CardResponse> loader) {
+        if (!enabled) {
+            return loader.apply(cardId);
+        }
+        return cards.get(cardId, loader);
+    }
+
+    public void evict(UUID cardId) {
+        if (!enabled) {
+            return;
+        }
+        cards.invalidate(cardId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cards.invalidate(cardId);
+                }
+            });
+        }
+    }
+}
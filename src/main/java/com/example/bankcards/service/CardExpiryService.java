@@ -0,0 +1,121 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.enums.CardStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Перевод карт с истёкшим сроком действия в статус EXPIRED.
+ * Карты обновляются пачками по app.card-expiry.chunk-size, каждая пачка в своей транзакции.
+ * Строки выбираются с FOR UPDATE SKIP LOCKED: карты, заблокированные переводом или другим узлом,
+ * пропускаются, поэтому задача не ждёт переводы, а несколько экземпляров приложения делят работу между собой.
+ * Пропущенные карты обрабатываются при следующем запуске
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class CardExpiryService {
+
+    /**
+     * Условие совпадает с частичным индексом idx_cards_expiry_date_unexpired.
+     * version увеличивается, чтобы оптимистичный перевод по этой карте получил конфликт и перечитал её статус.
+     * Прежний статус возвращается из CTE для статистики по статусам
+     */
+    private static final String EXPIRE_CHUNK = """
+            WITH expiring AS (
+                SELECT id, status FROM cards
+                WHERE expiry_date < ? AND status <> 'EXPIRED' AND deleted_at IS NULL
+                ORDER BY expiry_date
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE cards c SET status = 'EXPIRED', updated_at = CURRENT_TIMESTAMP, version = c.version + 1
+            FROM expiring e
+            WHERE c.id = e.id
+            RETURNING c.id, e.status
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardCache cardCache;
+    private final CardStatsService cardStatsService;
+    private final int chunkSize;
+    private final Counter expired;
+    private final Counter chunks;
+    private final Timer sweeps;
+
+    public CardExpiryService(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             CardCache cardCache,
+                             CardStatsService cardStatsService,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.card-expiry.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardCache = cardCache;
+        this.cardStatsService = cardStatsService;
+        this.chunkSize = chunkSize;
+        this.expired = Counter.builder("bank.cards.expiry.expired")
+                .description("Карты, переведённые в статус EXPIRED")
+                .register(meterRegistry);
+        this.chunks = Counter.builder("bank.cards.expiry.chunks")
+                .description("Пачки карт, обработанные задачей истечения срока")
+                .register(meterRegistry);
+        this.sweeps = Timer.builder("bank.cards.expiry.sweep")
+                .description("Длительность одного запуска задачи истечения срока")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.card-expiry.cron:0 5 0 * * *}")
+    public void expireScheduled() {
+        expireCards(LocalDate.now());
+    }
+
+    /**
+     * @param today карты со сроком действия раньше этой даты считаются истёкшими
+     * @return число карт, переведённых в EXPIRED
+     */
+    public int expireCards(LocalDate today) {
+        return sweeps.record(() -> {
+            int total = 0;
+            int updated;
+            do {
+                updated = transactionTemplate.execute(status -> expireChunk(today));
+                total += updated;
+            } while (updated == chunkSize);
+            if (total > 0) {
+                log.info("Карт с истёкшим сроком переведено в EXPIRED: {}", total);
+            }
+            return total;
+        });
+    }
+
+    private int expireChunk(LocalDate today) {
+        Map<CardStatus, Long> previousStatuses = new EnumMap<>(CardStatus.class);
+        jdbcTemplate.query(EXPIRE_CHUNK, rs -> {
+            cardCache.evict(rs.getObject(1, UUID.class));
+            previousStatuses.merge(CardStatus.valueOf(rs.getString(2)), 1L, Long::sum);
+        }, Date.valueOf(today), chunkSize);
+        previousStatuses.forEach((status, count) -> cardStatsService.statusChanged(status, CardStatus.EXPIRED, count));
+
+        int updated = previousStatuses.values().stream().mapToInt(Long::intValue).sum();
+        chunks.increment();
+        expired.increment(updated);
+        return updated;
+    }
+}
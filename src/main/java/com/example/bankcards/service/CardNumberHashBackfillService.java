@@ -0,0 +1,193 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.util.CardEncryptionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Заполнение number_hash у карт, выпущенных до появления колонки.
+ * Карты обрабатываются пачками по возрастанию id, каждая пачка в своей транзакции.
+ * Строки, заблокированные переводами, пропускаются и дозаполняются при следующем запуске.
+ * Если номер уже встречается у другой карты, колонка остаётся пустой, дубликат пишется в лог
+ * и помечается в duplicate_of, чтобы следующие запуски его не расшифровывали.
+ * Ошибка одной карты не останавливает пачку: карта, номер которой не расшифровывается, пишется в лог
+ * и помечается в number_hash_failed_at. Если пачку не удалось записать из-за карты с тем же номером,
+ * выпущенной во время заполнения, хеши записываются по одной карте, и конфликтующая карта помечается дубликатом
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class CardNumberHashBackfillService {
+
+    static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private static final String SELECT_BATCH = """
+            SELECT id, encrypted_number FROM cards
+            WHERE number_hash IS NULL AND duplicate_of IS NULL AND number_hash_failed_at IS NULL AND id > ?
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String UPDATE_HASH = "UPDATE cards SET number_hash = ? WHERE id = ?";
+    private static final String SAVEPOINT = "number_hash_backfill";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CardEncryptionUtil cardEncryptionUtil;
+    private final int batchSize;
+
+    public CardNumberHashBackfillService(JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         CardEncryptionUtil cardEncryptionUtil,
+                                         @Value("${app.card-hash.backfill-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cardEncryptionUtil = cardEncryptionUtil;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${app.card-hash.backfill-cron:0 */10 * * * *}")
+    public void backfillScheduled() {
+        backfill();
+    }
+
+    /**
+     * @return число карт, у которых заполнен number_hash
+     */
+    public int backfill() {
+        UUID lastId = MIN_ID;
+        int updated = 0;
+        while (lastId != null) {
+            UUID afterId = lastId;
+            Batch batch = transactionTemplate.execute(status -> backfillBatch(afterId));
+            updated += batch.updated();
+            lastId = batch.lastId();
+        }
+        if (updated > 0) {
+            log.info("Заполнен number_hash у карт: {}", updated);
+        }
+        return updated;
+    }
+
+    private Batch backfillBatch(UUID afterId) {
+        List<EncryptedCard> cards = jdbcTemplate.query(SELECT_BATCH,
+                (rs, rowNum) -> new EncryptedCard(rs.getObject(1, UUID.class), rs.getString(2)),
+                afterId, batchSize);
+        if (cards.isEmpty()) {
+            return new Batch(0, null);
+        }
+
+        Map<String, UUID> hashes = new LinkedHashMap<>();
+        List<Object[]> duplicates = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        for (EncryptedCard card : cards) {
+            String hash;
+            try {
+                hash = cardEncryptionUtil.hash(cardEncryptionUtil.decrypt(card.encryptedNumber()));
+            } catch (RuntimeException e) {
+                log.warn("Не удалось вычислить number_hash карты {}, карта пропускается", card.id(), e);
+                failed.add(new Object[]{card.id()});
+                continue;
+            }
+            UUID previous = hashes.putIfAbsent(hash, card.id());
+            if (previous != null) {
+                log.warn("Карты {} и {} выпущены с одинаковым номером", previous, card.id());
+                duplicates.add(new Object[]{previous, card.id()});
+            }
+        }
+        jdbcTemplate.query("SELECT number_hash, id FROM cards WHERE number_hash = ANY(?)", rs -> {
+            UUID duplicate = hashes.remove(rs.getString(1));
+            UUID original = rs.getObject(2, UUID.class);
+            log.warn("Карта {} выпущена с номером, который уже есть у карты {}", duplicate, original);
+            duplicates.add(new Object[]{original, duplicate});
+        }, (Object) hashes.keySet().toArray(String[]::new));
+
+        int updated = writeHashes(hashes, duplicates, failed);
+        if (!duplicates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE cards SET duplicate_of = ? WHERE id = ?", duplicates);
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE cards SET number_hash_failed_at = CURRENT_TIMESTAMP WHERE id = ?", failed);
+        }
+
+        UUID lastId = cards.size() < batchSize ? null : cards.getLast().id();
+        return new Batch(updated, lastId);
+    }
+
+    /**
+     * Записывает хеши одним пакетом. Карта с тем же номером, выпущенная после проверки дубликатов,
+     * нарушает уникальность number_hash; тогда пакет откатывается и хеши записываются по одной карте,
+     * чтобы остальные карты пачки всё равно получили хеш
+     *
+     * @return число записанных хешей
+     */
+    private int writeHashes(Map<String, UUID> hashes, List<Object[]> duplicates, List<Object[]> failed) {
+        List<Object[]> updates = new ArrayList<>(hashes.size());
+        hashes.forEach((hash, id) -> updates.add(new Object[]{hash, id}));
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        try {
+            inSavepoint(() -> jdbcTemplate.batchUpdate(UPDATE_HASH, updates));
+            return updates.size();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Пачка number_hash не записана из-за совпадения номеров, хеши записываются по одной карте");
+        }
+
+        int updated = 0;
+        for (Map.Entry<String, UUID> entry : hashes.entrySet()) {
+            UUID id = entry.getValue();
+            try {
+                inSavepoint(() -> jdbcTemplate.update(UPDATE_HASH, entry.getKey(), id));
+                updated++;
+            } catch (DataIntegrityViolationException e) {
+                List<UUID> owners = jdbcTemplate.queryForList("SELECT id FROM cards WHERE number_hash = ?",
+                        UUID.class, entry.getKey());
+                if (owners.isEmpty()) {
+                    log.warn("Не удалось записать number_hash карты {}, карта пропускается", id, e);
+                    failed.add(new Object[]{id});
+                } else {
+                    log.warn("Карта {} выпущена с номером, который уже есть у карты {}", id, owners.getFirst());
+                    duplicates.add(new Object[]{owners.getFirst(), id});
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Ошибка запроса в PostgreSQL прерывает всю транзакцию, поэтому запрос, который может нарушить
+     * уникальность, выполняется после точки сохранения и при ошибке откатывается только до неё
+     */
+    private void inSavepoint(Runnable statement) {
+        jdbcTemplate.execute("SAVEPOINT " + SAVEPOINT);
+        try {
+            statement.run();
+        } catch (DataIntegrityViolationException e) {
+            jdbcTemplate.execute("ROLLBACK TO SAVEPOINT " + SAVEPOINT);
+            throw e;
+        } finally {
+            jdbcTemplate.execute("RELEASE SAVEPOINT " + SAVEPOINT);
+        }
+    }
+
+    record EncryptedCard(UUID id, String encryptedNumber) {
+    }
+
+    private record Batch(int updated, UUID lastId) {
+    }
+}
@@ -1,33 +1,70 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.CursorPageResponseDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.enums.CardStatus;
 import com.example.bankcards.exception.AccessDeniedException;
 import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.CardMapper;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.specification.CardSpecification;
+import com.example.bankcards.util.CursorCodec;
 import com.example.bankcards.util.CardEncryptionUtil;
-import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
 public class CardService {
 
+    static final int MAX_PAGE_SIZE = 100;
+    static final String NUMBER_HASH_INDEX = "idx_cards_number_hash";
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final CardEncryptionUtil cardEncryptionUtil;
+    private final LedgerService ledgerService;
+    private final CardMapper cardMapper;
+    private final CardCache cardCache;
+    private final CardStatsService cardStatsService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public CardService(CardRepository cardRepository,
+                       UserRepository userRepository,
+                       CardEncryptionUtil cardEncryptionUtil,
+                       LedgerService ledgerService,
+                       CardMapper cardMapper,
+                       CardCache cardCache,
+                       CardStatsService cardStatsService,
+                       PlatformTransactionManager transactionManager) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.cardEncryptionUtil = cardEncryptionUtil;
+        this.ledgerService = ledgerService;
+        this.cardMapper = cardMapper;
+        this.cardCache = cardCache;
+        this.cardStatsService = cardStatsService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     @Transactional
     public Card createCard(CreateCardRequest request) {
@@ -35,12 +72,18 @@ public class CardService {
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Пользователь с id: " + request.ownerId() + " не найден"));
 
+        String numberHash = cardEncryptionUtil.hash(request.cardNumber());
+        if (cardRepository.existsByNumberHash(numberHash)) {
+            throw new DuplicateResourceException("Карта с таким номером уже выпущена");
+        }
+
         String encryptedNumber = cardEncryptionUtil.encrypt(request.cardNumber());
         String maskedNumber = cardEncryptionUtil.mask(request.cardNumber());
 
         Card card = Card.builder()
                 .encryptedNumber(encryptedNumber)
                 .maskedNumber(maskedNumber)
+                .numberHash(numberHash)
                 .owner(owner)
                 .holderName(request.holderName())
                 .expiryDate(request.expiryDate())
@@ -48,13 +91,53 @@ public class CardService {
                 .balance(request.initialBalance())
                 .build();
 
-        return cardRepository.save(card);
+        Card saved;
+        try {
+            saved = cardRepository.saveAndFlush(card);
+        } catch (DataIntegrityViolationException e) {
+            // Проверка выше не защищает от параллельного выпуска карты с тем же номером
+            if (e.getCause() instanceof ConstraintViolationException violation
+                    && NUMBER_HASH_INDEX.equals(violation.getConstraintName())) {
+                throw new DuplicateResourceException("Карта с таким номером уже выпущена");
+            }
+            throw e;
+        }
+        ledgerService.recordOpening(saved);
+        cardStatsService.cardIssued(saved);
+        return saved;
+    }
+
+    /**
+     * Поиск карты по полному номеру через уникальный индекс number_hash, без расшифровки строк
+     */
+    @Transactional(readOnly = true)
+    public Card findByNumber(String cardNumber) {
+        return cardRepository.findByNumberHash(cardEncryptionUtil.hash(cardNumber))
+                .orElseThrow(() -> new ResourceNotFoundException("Карта с указанным номером не найдена"));
     }
 
     @Transactional(readOnly = true)
-    public Page<Card> getAllCards(CardStatus status, String holderName, Pageable pageable) {
+    public Page<CardResponse> getAllCards(CardStatus status, String holderName, Pageable pageable) {
         Specification<Card> spec = CardSpecification.byFilterAdmin(null, status, holderName);
-        return cardRepository.findAll(spec, pageable);
+        return cardRepository.findResponses(spec, pageable);
+    }
+
+    /**
+     * Страница карт без подсчёта общего числа записей
+     */
+    @Transactional(readOnly = true)
+    public Slice<CardResponse> getAllCardsSlice(CardStatus status, String holderName, Pageable pageable) {
+        Specification<Card> spec = CardSpecification.byFilterAdmin(null, status, holderName);
+        return cardRepository.findResponseSlice(spec, pageable);
+    }
+
+    /**
+     * Страница карт по курсору (created_at, id), от новых к старым
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<CardResponse> getAllCardsAfter(CardStatus status, String holderName,
+                                                                String cursor, int size) {
+        return cursorPage(CardSpecification.byFilterAdmin(null, status, holderName), cursor, size);
     }
 
     @Transactional
@@ -65,7 +148,10 @@ public class CardService {
         if (card.getStatus() == CardStatus.EXPIRED) {
             throw new CardOperationException("Невозможно активировать карту с истёкшим сроком действия");
         }
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.ACTIVE);
+        cardCache.evict(cardId);
+        cardStatsService.statusChanged(card, previous);
         return cardRepository.save(card);
     }
 
@@ -77,7 +163,10 @@ public class CardService {
         if (card.getStatus() == CardStatus.EXPIRED) {
             throw new CardOperationException("Невозможно заблокировать карту с истёкшим сроком действия");
         }
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
+        cardCache.evict(cardId);
+        cardStatsService.statusChanged(card, previous);
         return cardRepository.save(card);
     }
 
@@ -87,25 +176,50 @@ public class CardService {
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Карта с id: " + cardId + " не найдена"));
 
+        cardStatsService.cardDeleted(card);
         card.setDeletedAt(LocalDateTime.now());
+        cardCache.evict(cardId);
     }
 
     @Transactional(readOnly = true)
-    public Page<Card> getCardsByOwner(UUID ownerId, CardStatus status, Pageable pageable) {
+    public Page<CardResponse> getCardsByOwner(UUID ownerId, CardStatus status, Pageable pageable) {
         if (!userRepository.existsById(ownerId)) {
             throw new ResourceNotFoundException("Пользователь с id: " + ownerId + " не найден");
         }
         Specification<Card> spec = CardSpecification.byFilter(ownerId, status, null);
-        return cardRepository.findAll(spec, pageable);
+        return cardRepository.findResponses(spec, pageable);
     }
 
     @Transactional(readOnly = true)
-    public Card getCard(UUID cardId, UUID requestingUserId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        "Карта с id: " + cardId + " не найдена"));
+    public Slice<CardResponse> getCardsByOwnerSlice(UUID ownerId, CardStatus status, Pageable pageable) {
+        if (!userRepository.existsById(ownerId)) {
+            throw new ResourceNotFoundException("Пользователь с id: " + ownerId + " не найден");
+        }
+        Specification<Card> spec = CardSpecification.byFilter(ownerId, status, null);
+        return cardRepository.findResponseSlice(spec, pageable);
+    }
 
-        if (!card.getOwner().getId().equals(requestingUserId)) {
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<CardResponse> getCardsByOwnerAfter(UUID ownerId, CardStatus status,
+                                                                    String cursor, int size) {
+        if (!userRepository.existsById(ownerId)) {
+            throw new ResourceNotFoundException("Пользователь с id: " + ownerId + " не найден");
+        }
+        return cursorPage(CardSpecification.byFilter(ownerId, status, null), cursor, size);
+    }
+
+    /**
+     * Карта пользователя через кеш {@link CardCache}. Владелец проверяется и при попадании в кеш.
+     * Транзакция открывается только при промахе кеша, попадание не берёт соединение из пула
+     */
+    public CardResponse getCard(UUID cardId, UUID requestingUserId) {
+        CardResponse card = cardCache.get(cardId, id -> readOnlyTransaction.execute(status ->
+                cardRepository.findById(id)
+                        .map(cardMapper::toResponse)
+                        .orElseThrow(() -> new ResourceNotFoundException(
+                                "Карта с id: " + id + " не найдена"))));
+
+        if (!card.ownerId().equals(requestingUserId)) {
             throw new AccessDeniedException("Доступ к данной карте запрещён");
         }
 
@@ -128,7 +242,28 @@ public class CardService {
             throw new CardOperationException("Карта уже заблокирована");
         }
 
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
+        cardCache.evict(cardId);
+        cardStatsService.statusChanged(card, previous);
         return cardRepository.save(card);
     }
-}
\ No newline at end of file
+
+    private CursorPageResponseDto<CardResponse> cursorPage(Specification<Card> spec, String cursor, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        CursorCodec.Cursor after = CursorCodec.decodeOrFirstPage(cursor);
+
+        List<CardResponse> cards = cardRepository.findResponsesBefore(
+                spec, after.createdAt(), after.id(), Limit.of(pageSize + 1));
+
+        boolean hasNext = cards.size() > pageSize;
+        List<CardResponse> page = hasNext ? cards.subList(0, pageSize) : cards;
+        String nextCursor = null;
+        if (hasNext) {
+            CardResponse last = page.getLast();
+            nextCursor = CursorCodec.encode(last.createdAt(), last.id());
+        }
+
+        return new CursorPageResponseDto<>(page, pageSize, nextCursor, hasNext);
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.DailyIssuance;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Агрегаты по картам для панели администратора без чтения таблицы cards.
+ * Сервисы, меняющие карты, в той же транзакции добавляют строки изменений в card_stats_deltas: вставка
+ * не блокирует общих строк, а изменение фиксируется вместе с картой или откатывается вместе с ней.
+ * Раз в app.card-stats.flush-interval строки изменений одним запросом переносятся в card_stats
+ * и card_stats_daily, после чего значения перечитываются; ответ собирается из последних прочитанных значений.
+ * <p>
+ * Переводы не меняют сумму балансов, поэтому не учитываются. Изменения, сделанные в обход сервисов,
+ * исправляет пересчёт по таблице cards по расписанию app.card-stats.reconcile-cron. Он в одном снимке
+ * REPEATABLE READ считает карты и читает агрегаты вместе с ещё не перенесёнными изменениями, поэтому разница
+ * точна при любом числе узлов и не требует блокировок в приложении. Одновременные пересчёты на разных узлах
+ * не складываются: второй получает ошибку сериализации на строке reconcile.runs и пропускается
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class CardStatsService {
+
+    static final String BALANCE_KEY = "balance.total";
+    static final String STATUS_KEY_PREFIX = "cards.";
+
+    private static final String INSERT_DELTA = "INSERT INTO card_stats_deltas (stat_key, day, delta) VALUES (?, ?, ?)";
+
+    /**
+     * Перенос изменений в агрегаты одним запросом: строки удаляются и прибавляются атомарно,
+     * поэтому при одновременном переносе на нескольких узлах каждая строка учитывается один раз
+     */
+    private static final String MOVE_DELTAS = """
+            WITH moved AS (
+                DELETE FROM card_stats_deltas RETURNING stat_key, day, delta
+            ), stats AS (
+                INSERT INTO card_stats (stat_key, stat_value)
+                SELECT stat_key, sum(delta) FROM moved WHERE stat_key IS NOT NULL GROUP BY stat_key
+                ON CONFLICT (stat_key) DO UPDATE
+                SET stat_value = card_stats.stat_value + EXCLUDED.stat_value, updated_at = CURRENT_TIMESTAMP
+            )
+            INSERT INTO card_stats_daily (day, issued)
+            SELECT day, sum(delta) FROM moved WHERE day IS NOT NULL GROUP BY day
+            ON CONFLICT (day) DO UPDATE SET issued = card_stats_daily.issued + EXCLUDED.issued
+            """;
+
+    private static final String STORED_STATS = """
+            SELECT stat_key, sum(stat_value)::BIGINT
+            FROM (SELECT stat_key, stat_value FROM card_stats
+                  UNION ALL
+                  SELECT stat_key, delta FROM card_stats_deltas WHERE stat_key IS NOT NULL) s
+            GROUP BY stat_key
+            """;
+
+    private static final String STORED_ISSUED = """
+            SELECT day, sum(issued)::BIGINT
+            FROM (SELECT day, issued FROM card_stats_daily
+                  UNION ALL
+                  SELECT day, delta FROM card_stats_deltas WHERE day IS NOT NULL) d
+            WHERE day >= ?
+            GROUP BY day
+            """;
+
+    private static final String COUNT_CARDS = """
+            SELECT status, count(*), coalesce(sum(balance * 100), 0)::BIGINT
+            FROM cards
+            WHERE deleted_at IS NULL
+            GROUP BY status
+            """;
+
+    private static final String COUNT_ISSUED = """
+            SELECT created_at::DATE, count(*)
+            FROM cards
+            GROUP BY created_at::DATE
+            """;
+
+    private static final String MARK_RECONCILED = """
+            UPDATE card_stats SET stat_value = stat_value + 1, updated_at = CURRENT_TIMESTAMP
+            WHERE stat_key = 'reconcile.runs'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate reconcileTransaction;
+    private final int historyDays;
+    private volatile Snapshot persisted = Snapshot.EMPTY;
+
+    public CardStatsService(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.card-stats.history-days:90}") int historyDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.reconcileTransaction = new TransactionTemplate(transactionManager);
+        this.reconcileTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.historyDays = historyDays;
+    }
+
+    public void cardIssued(Card card) {
+        LocalDate day = card.getCreatedAt() != null ? card.getCreatedAt().toLocalDate() : LocalDate.now();
+        cardsIssued(card.getStatus(), 1, card.getBalance().minorUnits(), day);
+    }
+
+    public void cardsIssued(CardStatus status, long count, long balanceMinorUnits, LocalDate day) {
+        write(new Pending(Map.of(status, count), balanceMinorUnits, Map.of(day, count)));
+    }
+
+    /**
+     * Для удалённой карты ничего не меняет: удалённые карты в статистике не участвуют
+     */
+    public void statusChanged(Card card, CardStatus previous) {
+        if (card.getDeletedAt() == null) {
+            statusChanged(previous, card.getStatus(), 1);
+        }
+    }
+
+    public void statusChanged(CardStatus previous, CardStatus current, long count) {
+        if (previous == current) {
+            return;
+        }
+        Map<CardStatus, Long> statuses = new EnumMap<>(CardStatus.class);
+        statuses.put(previous, -count);
+        statuses.put(current, count);
+        write(new Pending(statuses, 0, Map.of()));
+    }
+
+    /**
+     * Вызывается до установки deletedAt; повторное удаление карты ничего не меняет
+     */
+    public void cardDeleted(Card card) {
+        if (card.getDeletedAt() != null) {
+            return;
+        }
+        write(new Pending(Map.of(card.getStatus(), -1L), -card.getBalance().minorUnits(), Map.of()));
+    }
+
+    /**
+     * @param days за сколько последних дней вернуть число выпущенных карт, не больше app.card-stats.history-days
+     */
+    public CardStatsResponse stats(int days) {
+        Snapshot snapshot = persisted;
+
+        Map<CardStatus, Long> cardsByStatus = new EnumMap<>(CardStatus.class);
+        long totalCards = 0;
+        for (CardStatus status : CardStatus.values()) {
+            long count = snapshot.cardsByStatus().getOrDefault(status, 0L);
+            cardsByStatus.put(status, count);
+            totalCards += count;
+        }
+        long totalBalance = snapshot.balance();
+
+        LocalDate today = LocalDate.now();
+        int window = Math.clamp(days, 1, historyDays);
+        List<DailyIssuance> issuedPerDay = new ArrayList<>(window);
+        for (LocalDate day = today.minusDays(window - 1L); !day.isAfter(today); day = day.plusDays(1)) {
+            issuedPerDay.add(new DailyIssuance(day, snapshot.issued().getOrDefault(day, 0L)));
+        }
+
+        return CardStatsResponse.builder()
+                .cardsByStatus(cardsByStatus)
+                .totalCards(totalCards)
+                .totalBalance(Money.ofMinor(totalBalance))
+                .averageBalance(totalCards > 0 ? Money.ofMinor(totalBalance / totalCards) : Money.ZERO)
+                .issuedPerDay(issuedPerDay)
+                .asOf(snapshot.loadedAt())
+                .build();
+    }
+
+    /**
+     * Переносит строки изменений в агрегаты и перечитывает значения, в том числе изменения других узлов.
+     * Если перенос не удался, строки остаются в card_stats_deltas до следующей попытки и уже учитываются при чтении
+     */
+    @Scheduled(fixedDelayString = "${app.card-stats.flush-interval:10s}")
+    public synchronized void flush() {
+        try {
+            jdbcTemplate.update(MOVE_DELTAS);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось перенести изменения статистики карт, повтор при следующем сбросе", e);
+        }
+        reload();
+    }
+
+    /**
+     * Пересчёт агрегатов по таблице cards. Единственная операция, которая читает cards целиком
+     */
+    @Scheduled(cron = "${app.card-stats.reconcile-cron:0 30 * * * *}")
+    public synchronized void reconcile() {
+        Snapshot before = persisted;
+        try {
+            reconcileTransaction.executeWithoutResult(status -> {
+                Pending drift = drift();
+                if (!drift.isEmpty()) {
+                    write(drift);
+                }
+                jdbcTemplate.update(MARK_RECONCILED);
+            });
+        } catch (ConcurrencyFailureException e) {
+            log.info("Пересчёт статистики карт пропущен: одновременно выполняется пересчёт на другом узле");
+            return;
+        }
+        reload();
+        Snapshot after = persisted;
+        if (!before.cardsByStatus().equals(after.cardsByStatus()) || before.balance() != after.balance()) {
+            log.info("Статистика карт пересчитана: было {} и баланс {}, стало {} и баланс {}",
+                    before.cardsByStatus(), before.balance(), after.cardsByStatus(), after.balance());
+        }
+    }
+
+    /**
+     * Разница между подсчётом по cards и агрегатами вместе с ещё не перенесёнными изменениями.
+     * Все запросы видят один снимок транзакции REPEATABLE READ: изменение карты и его строка в card_stats_deltas
+     * фиксируются одной транзакцией, поэтому в снимок попадают либо обе, либо ни одна
+     */
+    private Pending drift() {
+        Map<CardStatus, Long> statuses = new EnumMap<>(CardStatus.class);
+        long[] balance = {0};
+        jdbcTemplate.query(COUNT_CARDS, rs -> {
+            statuses.put(CardStatus.valueOf(rs.getString(1)), rs.getLong(2));
+            balance[0] += rs.getLong(3);
+        });
+        Map<LocalDate, Long> issued = new TreeMap<>();
+        jdbcTemplate.query(COUNT_ISSUED, rs -> {
+            issued.put(rs.getDate(1).toLocalDate(), rs.getLong(2));
+        });
+
+        Snapshot stored = readStored(LocalDate.EPOCH);
+        return new Pending(statuses, balance[0], issued)
+                .minus(new Pending(stored.cardsByStatus(), stored.balance(), stored.issued()));
+    }
+
+    /**
+     * Строки изменений в текущей транзакции. Нулевые значения не записываются
+     */
+    private void write(Pending pending) {
+        List<Object[]> rows = new ArrayList<>();
+        pending.statuses().forEach((status, value) -> {
+            if (value != 0) {
+                rows.add(new Object[]{STATUS_KEY_PREFIX + status, null, value});
+            }
+        });
+        if (pending.balance() != 0) {
+            rows.add(new Object[]{BALANCE_KEY, null, pending.balance()});
+        }
+        pending.issued().forEach((day, value) -> {
+            if (value != 0) {
+                rows.add(new Object[]{null, Date.valueOf(day), value});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DELTA, rows);
+        }
+    }
+
+    private void reload() {
+        persisted = snapshotTransaction.execute(status -> readStored(LocalDate.now().minusDays(historyDays)));
+    }
+
+    private Snapshot readStored(LocalDate fromDay) {
+        Map<CardStatus, Long> cardsByStatus = new EnumMap<>(CardStatus.class);
+        long[] balance = {0};
+        jdbcTemplate.query(STORED_STATS, rs -> {
+            String key = rs.getString(1);
+            if (key.equals(BALANCE_KEY)) {
+                balance[0] = rs.getLong(2);
+            } else if (key.startsWith(STATUS_KEY_PREFIX)) {
+                cardsByStatus.put(CardStatus.valueOf(key.substring(STATUS_KEY_PREFIX.length())), rs.getLong(2));
+            }
+        });
+
+        NavigableMap<LocalDate, Long> issued = new TreeMap<>();
+        jdbcTemplate.query(STORED_ISSUED,
+                rs -> {
+                    issued.put(rs.getDate(1).toLocalDate(), rs.getLong(2));
+                },
+                Date.valueOf(fromDay));
+
+        return new Snapshot(cardsByStatus, balance[0], issued, LocalDateTime.now());
+    }
+
+    private record Pending(Map<CardStatus, Long> statuses, long balance, Map<LocalDate, Long> issued) {
+
+        boolean isEmpty() {
+            return statuses.isEmpty() && balance == 0 && issued.isEmpty();
+        }
+
+        /**
+         * Поэлементная разность без нулевых значений
+         */
+        Pending minus(Pending other) {
+            Map<CardStatus, Long> statusDiff = new EnumMap<>(CardStatus.class);
+            for (CardStatus status : CardStatus.values()) {
+                long value = statuses.getOrDefault(status, 0L) - other.statuses().getOrDefault(status, 0L);
+                if (value != 0) {
+                    statusDiff.put(status, value);
+                }
+            }
+            Map<LocalDate, Long> issuedDiff = new TreeMap<>(issued);
+            other.issued().forEach((day, value) -> issuedDiff.merge(day, -value, Long::sum));
+            issuedDiff.values().removeIf(value -> value == 0);
+            return new Pending(statusDiff, balance - other.balance(), issuedDiff);
+        }
+    }
+
+    private record Snapshot(Map<CardStatus, Long> cardsByStatus, long balance,
+                            NavigableMap<LocalDate, Long> issued, LocalDateTime loadedAt) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), 0, Collections.emptyNavigableMap(), null);
+    }
+}
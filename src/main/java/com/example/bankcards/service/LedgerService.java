@@ -0,0 +1,164 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.LedgerBalanceResponse;
+import com.example.bankcards.dto.LedgerTotals;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerSnapshot;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.enums.LedgerEntryType;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.LedgerHeadRepository;
+import com.example.bankcards.repository.LedgerSnapshotRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Журнал движений по картам. Каждый перевод записывается двумя записями (списание и зачисление),
+ * создание карты - записью с начальным балансом. Каждые app.ledger.snapshot-interval записей по карте
+ * добавляется снимок баланса, поэтому баланс на момент времени считается по последнему снимку
+ * и записям после него, а не по всему журналу. Баланс по журналу и число записей после снимка хранятся
+ * в ledger_heads и обновляются вместе с записями, так что запись перевода не читает журнал
+ *
+ * @author Владислав Степанов
+ */
+@Service
+public class LedgerService {
+
+    /**
+     * Нижняя граница интервала, когда у карты ещё нет снимков
+     */
+    static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LedgerEntryRepository entryRepository;
+    private final LedgerSnapshotRepository snapshotRepository;
+    private final LedgerHeadRepository headRepository;
+    private final CardRepository cardRepository;
+    private final int snapshotInterval;
+
+    public LedgerService(LedgerEntryRepository entryRepository,
+                         LedgerSnapshotRepository snapshotRepository,
+                         LedgerHeadRepository headRepository,
+                         CardRepository cardRepository,
+                         @Value("${app.ledger.snapshot-interval:100}") int snapshotInterval) {
+        this.entryRepository = entryRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.headRepository = headRepository;
+        this.cardRepository = cardRepository;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOpening(Card card) {
+        entryRepository.save(LedgerEntry.builder()
+                .cardId(card.getId())
+                .entryType(LedgerEntryType.OPENING)
+                .amount(card.getBalance())
+                .build());
+        headRepository.advance(card.getId(), card.getBalance().minorUnits(), 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfer(Transfer transfer) {
+        recordTransfers(List.of(transfer));
+    }
+
+    /**
+     * Записывает переводы в журнал и обновляет снимки затронутых карт.
+     * Вызывается в транзакции перевода, пока строки карт заблокированы
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfers(Collection<Transfer> transfers) {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        List<LedgerEntry> entries = new ArrayList<>(transfers.size() * 2);
+        Map<UUID, Delta> deltas = new LinkedHashMap<>();
+        for (Transfer transfer : transfers) {
+            UUID fromCardId = transfer.getFromCard().getId();
+            UUID toCardId = transfer.getToCard().getId();
+            entries.add(LedgerEntry.builder()
+                    .cardId(fromCardId)
+                    .transferId(transfer.getId())
+                    .entryType(LedgerEntryType.DEBIT)
+                    .amount(transfer.getAmount().negate())
+                    .build());
+            entries.add(LedgerEntry.builder()
+                    .cardId(toCardId)
+                    .transferId(transfer.getId())
+                    .entryType(LedgerEntryType.CREDIT)
+                    .amount(transfer.getAmount())
+                    .build());
+            deltas.computeIfAbsent(fromCardId, id -> new Delta()).add(transfer.getAmount().negate());
+            deltas.computeIfAbsent(toCardId, id -> new Delta()).add(transfer.getAmount());
+        }
+        entryRepository.saveAll(entries);
+
+        // Строки карт заблокированы до коммита, поэтому более поздние записи по ним получат время позже этого
+        LocalDateTime recordedAt = LocalDateTime.now();
+        deltas.forEach((cardId, delta) -> {
+            LedgerHeadRepository.Counters counters =
+                    headRepository.advance(cardId, delta.minorUnits, delta.entries);
+            if (counters.getEntriesSinceSnapshot() >= snapshotInterval) {
+                snapshot(cardId, counters, recordedAt);
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public LedgerBalanceResponse balanceAsOf(UUID cardId, LocalDateTime asOf) {
+        if (!cardRepository.existsById(cardId)) {
+            throw new ResourceNotFoundException("Карта с id: " + cardId + " не найдена");
+        }
+        Optional<LedgerSnapshot> snapshot =
+                snapshotRepository.findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(cardId, asOf);
+        LocalDateTime after = snapshot.map(LedgerSnapshot::getAsOf).orElse(BEGINNING);
+        LedgerTotals totals = entryRepository.totalsBetween(cardId, after, asOf);
+
+        return LedgerBalanceResponse.builder()
+                .cardId(cardId)
+                .balance(snapshot.map(LedgerSnapshot::getBalance).orElse(Money.ZERO).plus(totals.sum()))
+                .asOf(asOf)
+                .snapshotAsOf(snapshot.map(LedgerSnapshot::getAsOf).orElse(null))
+                .entriesAfterSnapshot(totals.count())
+                .build();
+    }
+
+    private void snapshot(UUID cardId, LedgerHeadRepository.Counters counters, LocalDateTime asOf) {
+        snapshotRepository.save(LedgerSnapshot.builder()
+                .cardId(cardId)
+                .balance(Money.ofMinor(counters.getBalanceMinor()))
+                .asOf(asOf)
+                .entryCount(counters.getEntriesSinceSnapshot())
+                .build());
+        headRepository.markSnapshotted(cardId, counters.getEntriesSinceSnapshot());
+    }
+
+    /**
+     * Сумма и число записей по одной карте в пачке переводов
+     */
+    private static final class Delta {
+
+        private long minorUnits;
+        private int entries;
+
+        void add(Money amount) {
+            minorUnits = Math.addExact(minorUnits, amount.minorUnits());
+            entries++;
+        }
+    }
+}
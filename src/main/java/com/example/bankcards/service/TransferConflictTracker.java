@@ -0,0 +1,67 @@
+package com.example.bankcards.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Доля конфликтов оптимистичных переводов по каждой карте в виде экспоненциального скользящего среднего.
+ * Карта считается «горячей», пока доля выше порога; без новых попыток запись удаляется через cooldown,
+ * и карта возвращается в оптимистичный режим
+ *
+ * @author Владислав Степанов
+ */
+@Component
+public class TransferConflictTracker {
+
+    private final double threshold;
+    private final double smoothing;
+    private final Cache<UUID, Double> conflictRates;
+
+    public TransferConflictTracker(MeterRegistry meterRegistry,
+                                   @Value("${app.transfer.adaptive.conflict-threshold:0.3}") double threshold,
+                                   @Value("${app.transfer.adaptive.smoothing:0.2}") double smoothing,
+                                   @Value("${app.transfer.adaptive.cooldown:30s}") Duration cooldown,
+                                   @Value("${app.transfer.adaptive.max-tracked-cards:10000}") long maxTrackedCards) {
+        this.threshold = threshold;
+        this.smoothing = smoothing;
+        this.conflictRates = Caffeine.newBuilder()
+                .maximumSize(maxTrackedCards)
+                .expireAfterWrite(cooldown)
+                .build();
+
+        Gauge.builder("bank.transfer.adaptive.hot.cards", conflictRates,
+                        rates -> rates.asMap().values().stream().filter(rate -> rate > threshold).count())
+                .description("Количество карт, переводы по которым выполняются с пессимистичной блокировкой")
+                .register(meterRegistry);
+    }
+
+    public void recordConflict(UUID cardId) {
+        record(cardId, 1.0);
+    }
+
+    public void recordSuccess(UUID cardId) {
+        record(cardId, 0.0);
+    }
+
+    public boolean isContended(UUID cardId) {
+        Double rate = conflictRates.getIfPresent(cardId);
+        return rate != null && rate > threshold;
+    }
+
+    double conflictRate(UUID cardId) {
+        Double rate = conflictRates.getIfPresent(cardId);
+        return rate == null ? 0.0 : rate;
+    }
+
+    private void record(UUID cardId, double outcome) {
+        conflictRates.asMap().compute(cardId, (id, rate) ->
+                rate == null ? outcome * smoothing : rate + smoothing * (outcome - rate));
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.enums.TransferMode;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.mapping.TransferMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Точка входа для переводов: выбирает режим выполнения, заданный в app.transfer.mode.
+ * Оптимистичные переводы повторяются при конфликте версий с экспоненциальной паузой и случайным разбросом
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class TransferEngine {
+
+    private final TransferService transferService;
+    private final TransferMapper transferMapper;
+    private final TransferIdempotencyService idempotencyService;
+    private final TransferConflictTracker conflictTracker;
+    private final TransferSequencer sequencer;
+
+    @Getter
+    private final TransferMode mode;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final Map<TransferMode, ModeStats> stats = new EnumMap<>(TransferMode.class);
+    private final Counter hotCardFallbacks;
+    private final Counter exhaustedFallbacks;
+
+    public TransferEngine(TransferService transferService,
+                          TransferMapper transferMapper,
+                          TransferIdempotencyService idempotencyService,
+                          TransferConflictTracker conflictTracker,
+                          TransferSequencer sequencer,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.transfer.mode:PESSIMISTIC}") TransferMode mode,
+                          @Value("${app.transfer.optimistic.max-attempts:5}") int maxAttempts,
+                          @Value("${app.transfer.optimistic.initial-backoff:5ms}") Duration initialBackoff,
+                          @Value("${app.transfer.optimistic.max-backoff:200ms}") Duration maxBackoff) {
+        this.transferService = transferService;
+        this.transferMapper = transferMapper;
+        this.idempotencyService = idempotencyService;
+        this.conflictTracker = conflictTracker;
+        this.sequencer = sequencer;
+        this.mode = mode;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        for (TransferMode transferMode : TransferMode.values()) {
+            stats.put(transferMode, new ModeStats(meterRegistry, transferMode));
+        }
+        this.hotCardFallbacks = fallbacks(meterRegistry, "hot_card");
+        this.exhaustedFallbacks = fallbacks(meterRegistry, "retries_exhausted");
+        log.info("Режим выполнения переводов: {}", mode);
+    }
+
+    /**
+     * Перевод с необязательным ключом идемпотентности: при повторе с тем же ключом
+     * возвращается ответ первого выполнения без повторного списания
+     */
+    public TransferResponse transfer(TransferRequest request, UUID currentUserId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return transfer(request, currentUserId);
+        }
+        return idempotencyService.execute(currentUserId, idempotencyKey, request,
+                claim -> sequencer.execute(request, () -> execute(request, currentUserId, claim)));
+    }
+
+    public TransferResponse transfer(TransferRequest request, UUID currentUserId) {
+        return sequencer.execute(request, () -> execute(request, currentUserId, null));
+    }
+
+    public BatchTransferResponse transferBatch(BatchTransferRequest request, UUID currentUserId) {
+        return transferService.transferBatch(request.transfers(), request.mode(), currentUserId);
+    }
+
+    public double conflictRate(TransferMode transferMode) {
+        return stats.get(transferMode).conflictRate();
+    }
+
+    /**
+     * @param claim - ключ идемпотентности, который отмечается выполненным в транзакции перевода, или null
+     */
+    private TransferResponse execute(TransferRequest request, UUID currentUserId,
+                                     TransferIdempotencyService.Claim claim) {
+        return switch (mode) {
+            case PESSIMISTIC -> pessimistic(request, currentUserId, claim);
+            case CONDITIONAL_UPDATE -> {
+                stats.get(TransferMode.CONDITIONAL_UPDATE).attempts.increment();
+                yield transferService.transferConditional(request, currentUserId, claim);
+            }
+            case OPTIMISTIC -> {
+                TransferResponse response = optimistic(request, currentUserId, claim, TransferMode.OPTIMISTIC);
+                if (response == null) {
+                    throw new TransferConflictException("Карта изменяется параллельными операциями, повторите перевод позже");
+                }
+                yield response;
+            }
+            case ADAPTIVE -> adaptive(request, currentUserId, claim);
+        };
+    }
+
+    private TransferResponse adaptive(TransferRequest request, UUID currentUserId,
+                                      TransferIdempotencyService.Claim claim) {
+        if (conflictTracker.isContended(request.fromCardId()) || conflictTracker.isContended(request.toCardId())) {
+            hotCardFallbacks.increment();
+            return pessimistic(request, currentUserId, claim);
+        }
+        TransferResponse response = optimistic(request, currentUserId, claim, TransferMode.ADAPTIVE);
+        if (response != null) {
+            return response;
+        }
+        exhaustedFallbacks.increment();
+        return pessimistic(request, currentUserId, claim);
+    }
+
+    private TransferResponse pessimistic(TransferRequest request, UUID currentUserId,
+                                         TransferIdempotencyService.Claim claim) {
+        stats.get(TransferMode.PESSIMISTIC).attempts.increment();
+        return transferMapper.toResponse(transferService.transfer(request, currentUserId, claim));
+    }
+
+    /**
+     * Выполняет до maxAttempts оптимистичных попыток
+     *
+     * @return ответ перевода или null, если все попытки завершились конфликтом версий
+     */
+    private TransferResponse optimistic(TransferRequest request, UUID currentUserId,
+                                        TransferIdempotencyService.Claim claim, TransferMode statsMode) {
+        ModeStats modeStats = stats.get(statsMode);
+        for (int attempt = 1; ; attempt++) {
+            modeStats.attempts.increment();
+            try {
+                TransferResponse response = transferMapper.toResponse(
+                        transferService.transferOptimistic(request, currentUserId, claim));
+                conflictTracker.recordSuccess(request.fromCardId());
+                conflictTracker.recordSuccess(request.toCardId());
+                return response;
+            } catch (OptimisticLockingFailureException e) {
+                modeStats.conflicts.increment();
+                conflictTracker.recordConflict(request.fromCardId());
+                conflictTracker.recordConflict(request.toCardId());
+                if (attempt >= maxAttempts) {
+                    log.debug("Перевод {} -> {} не выполнен за {} попыток",
+                            request.fromCardId(), request.toCardId(), maxAttempts);
+                    return null;
+                }
+                modeStats.retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 30));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferConflictException("Перевод прерван во время ожидания повторной попытки");
+        }
+    }
+
+    private static Counter fallbacks(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("bank.transfer.adaptive.fallbacks")
+                .description("Переводы в адаптивном режиме, выполненные с пессимистичной блокировкой")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class ModeStats {
+
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+
+        private ModeStats(MeterRegistry meterRegistry, TransferMode transferMode) {
+            String tag = transferMode.name().toLowerCase(Locale.ROOT);
+            FunctionCounter.builder("bank.transfer.attempts", attempts, LongAdder::sum)
+                    .description("Попытки выполнения перевода")
+                    .tag("mode", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("bank.transfer.conflicts", conflicts, LongAdder::sum)
+                    .description("Попытки перевода, завершившиеся конфликтом версий карты")
+                    .tag("mode", tag)
+                    .register(meterRegistry);
+            FunctionCounter.builder("bank.transfer.retries", retries, LongAdder::sum)
+                    .description("Повторы перевода после конфликта версий")
+                    .tag("mode", tag)
+                    .register(meterRegistry);
+            Gauge.builder("bank.transfer.conflict.rate", this, ModeStats::conflictRate)
+                    .description("Доля попыток перевода, завершившихся конфликтом")
+                    .tag("mode", tag)
+                    .register(meterRegistry);
+        }
+
+        private double conflictRate() {
+            long total = attempts.sum();
+            return total == 0 ? 0.0 : (double) conflicts.sum() / total;
+        }
+    }
+}
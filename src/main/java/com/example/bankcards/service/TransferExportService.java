@@ -0,0 +1,116 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.enums.ExportFormat;
+import com.example.bankcards.exception.CardOperationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Выгрузка переводов за период. Строки читаются курсором JDBC с фиксированным fetch size
+ * в read-only транзакции (без этого драйвер PostgreSQL загружает всю выборку в память)
+ * и сразу пишутся в поток ответа, минуя сущности и контекст персистентности
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class TransferExportService {
+
+    static final String CSV_HEADER = "id,from_card_id,from_card_masked,to_card_id,to_card_masked,amount,created_at\n";
+
+    private static final String EXPORT_QUERY = """
+            SELECT t.id, t.from_card_id, fc.masked_number, t.to_card_id, tc.masked_number, t.amount, t.created_at
+            FROM transfers t
+            JOIN cards fc ON fc.id = t.from_card_id
+            JOIN cards tc ON tc.id = t.to_card_id
+            WHERE t.created_at >= ? AND t.created_at < ?
+            ORDER BY t.created_at, t.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TransferExportService(DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new CardOperationException("Начало периода должно быть раньше его конца");
+        }
+    }
+
+    public void export(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        writer.flush();
+
+        long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                long[] count = {0};
+                jdbcTemplate.query(EXPORT_QUERY, rs -> {
+                    writeRow(rs, format, writer);
+                    count[0]++;
+                }, from, to);
+                return count[0];
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Выгружено переводов: {} за период {} - {}", rows, from, to);
+    }
+
+    static void writeRow(ResultSet rs, ExportFormat format, Writer writer) throws SQLException {
+        UUID id = rs.getObject(1, UUID.class);
+        UUID fromCardId = rs.getObject(2, UUID.class);
+        String fromMasked = rs.getString(3);
+        UUID toCardId = rs.getObject(4, UUID.class);
+        String toMasked = rs.getString(5);
+        BigDecimal amount = rs.getBigDecimal(6);
+        LocalDateTime createdAt = rs.getObject(7, LocalDateTime.class);
+
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(id + "," + fromCardId + "," + fromMasked + "," + toCardId + "," + toMasked
+                        + "," + amount.toPlainString() + "," + createdAt + "\n");
+            } else {
+                writer.write("{\"id\":\"" + id
+                        + "\",\"fromCardId\":\"" + fromCardId
+                        + "\",\"fromCardMasked\":\"" + fromMasked
+                        + "\",\"toCardId\":\"" + toCardId
+                        + "\",\"toCardMasked\":\"" + toMasked
+                        + "\",\"amount\":" + amount.toPlainString()
+                        + ",\"createdAt\":\"" + createdAt + "\"}\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
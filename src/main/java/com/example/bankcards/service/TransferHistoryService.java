@@ -0,0 +1,81 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CursorPageResponseDto;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.exception.AccessDeniedException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.TransferMapper;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.util.CursorCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * История переводов по карте с постраничной выборкой по курсору (created_at, id).
+ * Исходящие и входящие переводы читаются двумя диапазонами индексов и сливаются в памяти,
+ * каждый диапазон ограничен размером страницы
+ *
+ * @author Владислав Степанов
+ */
+@Service
+@RequiredArgsConstructor
+public class TransferHistoryService {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Порядок выдачи совпадает с ORDER BY created_at DESC, id DESC в PostgreSQL
+     */
+    private static final Comparator<Transfer> NEWEST_FIRST = Comparator
+            .comparing(Transfer::getCreatedAt)
+            .thenComparing(Transfer::getId, TransferService.LOCK_ORDER)
+            .reversed();
+
+    private final CardRepository cardRepository;
+    private final TransferRepository transferRepository;
+    private final TransferMapper transferMapper;
+
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<TransferResponse> getHistory(UUID cardId, UUID currentUserId,
+                                                              String cursor, int size) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Карта с id: " + cardId + " не найдена"));
+        if (!card.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException("Доступ к данной карте запрещён");
+        }
+
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        CursorCodec.Cursor after = CursorCodec.decodeOrFirstPage(cursor);
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Transfer> merged = new ArrayList<>(2 * (pageSize + 1));
+        merged.addAll(transferRepository.findOutgoingBefore(cardId, after.createdAt(), after.id(), limit));
+        merged.addAll(transferRepository.findIncomingBefore(cardId, after.createdAt(), after.id(), limit));
+        merged.sort(NEWEST_FIRST);
+
+        boolean hasNext = merged.size() > pageSize;
+        List<Transfer> page = hasNext ? merged.subList(0, pageSize) : merged;
+        String nextCursor = null;
+        if (hasNext) {
+            Transfer last = page.getLast();
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return new CursorPageResponseDto<>(
+                page.stream().map(transferMapper::toResponse).toList(),
+                pageSize,
+                nextCursor,
+                hasNext
+        );
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.TransferIdempotency;
+import com.example.bankcards.entity.TransferIdempotencyId;
+import com.example.bankcards.enums.IdempotencyStatus;
+import com.example.bankcards.exception.AccessDeniedException;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.DuplicateResourceException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.repository.TransferIdempotencyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Идемпотентность переводов по заголовку Idempotency-Key.
+ * Недавние ответы хранятся в ограниченном по объёму кеше в памяти, таблица transfer_idempotency служит резервом
+ * и защищает от параллельных повторов: ключ занимается вставкой строки до выполнения перевода.
+ * Результат записывается в ту же строку в транзакции самого перевода ({@link #complete}), поэтому перевод
+ * и отметка о нём фиксируются вместе. Ключ освобождается только при ошибках, после которых перевод точно
+ * не зафиксирован; при неизвестном исходе ключ остаётся занятым и может быть перехвачен повтором
+ * не раньше app.idempotency.pending-timeout
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Service
+public class TransferIdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 128;
+
+    /**
+     * Оценка размера записи кеша без учёта самого ключа: объекты ключа, ответа, хеша запроса и узла Caffeine
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 576;
+
+    private final TransferIdempotencyRepository idempotencyRepository;
+    private final Duration retention;
+    private final Duration pendingTimeout;
+    private final Cache<TransferIdempotencyId, StoredResponse> memory;
+
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public TransferIdempotencyService(TransferIdempotencyRepository idempotencyRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.idempotency.retention:24h}") Duration retention,
+                                      @Value("${app.idempotency.memory-max-size:16MB}") DataSize memoryMaxSize,
+                                      @Value("${app.idempotency.pending-timeout:5m}") Duration pendingTimeout) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.retention = retention;
+        this.pendingTimeout = pendingTimeout;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(memoryMaxSize.toBytes())
+                .weigher((TransferIdempotencyId key, StoredResponse value) ->
+                        ENTRY_OVERHEAD_BYTES + key.getIdempotencyKey().length())
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "transfer-idempotency");
+        Gauge.builder("bank.idempotency.memory.bytes", memory,
+                        cache -> cache.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .description("Оценка объёма памяти, занятого кешем идемпотентности")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.memoryHits = lookups(meterRegistry, "memory");
+        this.databaseHits = lookups(meterRegistry, "database");
+        this.misses = lookups(meterRegistry, "miss");
+    }
+
+    /**
+     * Выполняет перевод не более одного раза для пары (пользователь, ключ).
+     * Повтор с тем же ключом возвращает сохранённый ответ, не обращаясь к картам
+     *
+     * @param transfer - перевод, который должен вызвать {@link #complete} с переданным ключом в своей транзакции
+     */
+    public TransferResponse execute(UUID userId, String key, TransferRequest request,
+                                    Function<Claim, TransferResponse> transfer) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new CardOperationException(
+                    "Idempotency-Key должен содержать от 1 до " + MAX_KEY_LENGTH + " символов");
+        }
+        TransferIdempotencyId id = new TransferIdempotencyId(userId, key);
+        String requestHash = fingerprint(request);
+
+        StoredResponse cached = memory.getIfPresent(id);
+        if (cached != null) {
+            memoryHits.increment();
+            return cached.matching(requestHash);
+        }
+
+        LocalDateTime staleBefore = LocalDateTime.now().minus(pendingTimeout);
+        if (idempotencyRepository.claim(userId, key, requestHash, staleBefore) == 0) {
+            return replay(id, requestHash);
+        }
+        misses.increment();
+
+        TransferResponse response;
+        try {
+            response = transfer.apply(new Claim(userId, key));
+        } catch (ResourceNotFoundException | AccessDeniedException | CardOperationException
+                 | InsufficientFundsException | TransferConflictException | TooManyRequestsException e) {
+            idempotencyRepository.release(userId, key);
+            throw e;
+        }
+
+        memory.put(id, new StoredResponse(requestHash, response));
+        return response;
+    }
+
+    /**
+     * Отметка о выполненном переводе. Вызывается внутри транзакции перевода и откатывается вместе с ней
+     *
+     * @throws DuplicateResourceException если ключ уже завершён другим выполнением; перевод при этом откатывается
+     */
+    public void complete(Claim claim, TransferResponse response) {
+        int updated = idempotencyRepository.complete(claim.userId(), claim.key(), response.id(),
+                response.fromCardMasked(), response.toCardMasked(), response.amount().toDecimal(),
+                response.createdAt());
+        if (updated == 0) {
+            throw new DuplicateResourceException("Запрос с таким Idempotency-Key уже выполнен");
+        }
+    }
+
+    @Scheduled(cron = "${app.idempotency.cleanup-cron:0 0 * * * *}")
+    public void purgeExpired() {
+        int deleted = idempotencyRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Удалено устаревших ключей идемпотентности: {}", deleted);
+        }
+    }
+
+    private TransferResponse replay(TransferIdempotencyId id, String requestHash) {
+        Optional<TransferIdempotency> stored = idempotencyRepository.findById(id);
+        if (stored.isEmpty() || stored.get().getStatus() != IdempotencyStatus.COMPLETED) {
+            throw new DuplicateResourceException("Запрос с таким Idempotency-Key ещё выполняется");
+        }
+        databaseHits.increment();
+
+        TransferIdempotency row = stored.get();
+        StoredResponse response = new StoredResponse(row.getRequestHash(), TransferResponse.builder()
+                .id(row.getTransferId())
+                .fromCardMasked(row.getFromCardMasked())
+                .toCardMasked(row.getToCardMasked())
+                .amount(row.getAmount())
+                .createdAt(row.getTransferCreatedAt())
+                .build());
+        memory.put(id, response);
+        return response.matching(requestHash);
+    }
+
+    static String fingerprint(TransferRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String canonical = request.fromCardId() + "|" + request.toCardId() + "|"
+                    + request.amount().toDecimal().stripTrailingZeros().toPlainString();
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("bank.idempotency.lookups")
+                .description("Обращения к хранилищу идемпотентности переводов")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Занятый ключ идемпотентности, передаётся в транзакцию перевода
+     */
+    public record Claim(UUID userId, String key) {
+    }
+
+    private record StoredResponse(String requestHash, TransferResponse response) {
+
+        TransferResponse matching(String otherHash) {
+            if (!requestHash.equals(otherHash)) {
+                throw new DuplicateResourceException("Idempotency-Key уже использован для другого перевода");
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Последовательное выполнение переводов по «горячим» картам внутри приложения.
+ * Перевод попадает в одну из очередей по id карты, очередь разбирает один виртуальный поток,
+ * поэтому переводы по одной карте ждут друг друга в памяти, а не на блокировке строки с занятым соединением.
+ * Перевод между двумя горячими картами попадает в очередь карты, первой в порядке блокировок,
+ * чтобы переводы в обе стороны шли через одну очередь. С app.transfer.sequencer.all-cards
+ * последовательно выполняются все переводы по карте списания, а список горячих карт не используется
+ *
+ * @author Владислав Степанов
+ */
+@Slf4j
+@Component
+public class TransferSequencer {
+
+    private final boolean enabled;
+    private final boolean allCards;
+    private final Set<UUID> hotCards;
+    private final List<BlockingQueue<FutureTask<?>>> stripes;
+    private final List<Thread> workers;
+
+    public TransferSequencer(MeterRegistry meterRegistry,
+                             @Value("${app.transfer.sequencer.enabled:false}") boolean enabled,
+                             @Value("${app.transfer.sequencer.stripes:16}") int stripeCount,
+                             @Value("${app.transfer.sequencer.queue-capacity:1000}") int queueCapacity,
+                             @Value("${app.transfer.sequencer.hot-cards:}") Set<UUID> hotCards,
+                             @Value("${app.transfer.sequencer.all-cards:false}") boolean allCards) {
+        this.enabled = enabled;
+        this.allCards = allCards;
+        this.hotCards = Set.copyOf(hotCards);
+        this.stripes = new ArrayList<>();
+        this.workers = new ArrayList<>();
+        if (!enabled) {
+            return;
+        }
+
+        for (int i = 0; i < stripeCount; i++) {
+            BlockingQueue<FutureTask<?>> queue = new ArrayBlockingQueue<>(queueCapacity);
+            stripes.add(queue);
+            workers.add(Thread.ofVirtual().name("transfer-sequencer-" + i).start(() -> drain(queue)));
+            Gauge.builder("bank.transfer.sequencer.queue.depth", queue, BlockingQueue::size)
+                    .description("Количество переводов, ожидающих в очереди")
+                    .tag("stripe", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        if (allCards) {
+            log.info("Очереди переводов включены: {} шт., последовательно выполняются все переводы", stripeCount);
+        } else {
+            log.info("Очереди переводов включены: {} шт., горячих карт: {}", stripeCount, this.hotCards.size());
+        }
+    }
+
+    /**
+     * Выполняет перевод в очереди его карты либо сразу, если перевод не затрагивает горячих карт
+     *
+     * @throws TooManyRequestsException если очередь карты заполнена
+     */
+    public <T> T execute(TransferRequest request, Supplier<T> transfer) {
+        UUID cardId = routingCard(request);
+        if (cardId == null) {
+            return transfer.get();
+        }
+
+        FutureTask<T> task = new FutureTask<>(transfer::get);
+        if (!stripes.get(stripeIndex(cardId)).offer(task)) {
+            throw new TooManyRequestsException("Слишком много переводов по карте, повторите попытку позже");
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание перевода в очереди прервано", e);
+        }
+    }
+
+    UUID routingCard(TransferRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        UUID fromId = request.fromCardId();
+        UUID toId = request.toCardId();
+        if (allCards) {
+            return fromId;
+        }
+        boolean fromHot = hotCards.contains(fromId);
+        boolean toHot = hotCards.contains(toId);
+        if (fromHot && toHot) {
+            return TransferService.LOCK_ORDER.compare(fromId, toId) <= 0 ? fromId : toId;
+        }
+        if (fromHot) {
+            return fromId;
+        }
+        return toHot ? toId : null;
+    }
+
+    int stripeIndex(UUID cardId) {
+        return Math.floorMod(cardId.hashCode(), stripes.size());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.forEach(Thread::interrupt);
+        stripes.forEach(queue -> queue.forEach(task -> task.cancel(false)));
+    }
+
+    private void drain(BlockingQueue<FutureTask<?>> queue) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -1,41 +1,98 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResponse;
+import com.example.bankcards.dto.BatchTransferResponse;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.enums.BatchItemStatus;
+import com.example.bankcards.enums.BatchTransferMode;
 import com.example.bankcards.enums.CardStatus;
 import com.example.bankcards.exception.AccessDeniedException;
 import com.example.bankcards.exception.CardOperationException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.TransferMapper;
+import com.example.bankcards.money.Money;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 public class TransferService {
 
+    /**
+     * Порядок блокировки карт. Совпадает с сортировкой uuid в PostgreSQL (беззнаковое побайтовое сравнение),
+     * чтобы одиночные переводы и пакетный SELECT ... ORDER BY id FOR UPDATE захватывали строки в одном порядке
+     */
+    static final Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
     private final CardRepository cardRepository;
     private final TransferRepository transferRepository;
+    private final TransferMapper transferMapper;
+    private final LedgerService ledgerService;
+    private final CardCache cardCache;
+    private final TransferIdempotencyService idempotencyService;
 
     @Transactional
     public Transfer transfer(TransferRequest request, UUID currentUserId) {
+        return transfer(request, currentUserId, null);
+    }
+
+    /**
+     * @param claim - ключ идемпотентности, результат по которому записывается в транзакции перевода, или null
+     */
+    @Transactional
+    public Transfer transfer(TransferRequest request, UUID currentUserId, TransferIdempotencyService.Claim claim) {
+        return applyTransfer(request, currentUserId, claim, cardRepository::findByIdWithLock);
+    }
+
+    /**
+     * Одна попытка перевода без блокировок. Конфликт с параллельным изменением карты обнаруживается
+     * по колонке version при коммите и приводит к {@link org.springframework.orm.ObjectOptimisticLockingFailureException},
+     * повтор выполняет {@link TransferEngine}
+     */
+    @Transactional
+    public Transfer transferOptimistic(TransferRequest request, UUID currentUserId) {
+        return transferOptimistic(request, currentUserId, null);
+    }
+
+    @Transactional
+    public Transfer transferOptimistic(TransferRequest request, UUID currentUserId,
+                                       TransferIdempotencyService.Claim claim) {
+        return applyTransfer(request, currentUserId, claim, cardRepository::findById);
+    }
+
+    private Transfer applyTransfer(TransferRequest request, UUID currentUserId, TransferIdempotencyService.Claim claim,
+                                   Function<UUID, Optional<Card>> cardLoader) {
         if (request.fromCardId().equals(request.toCardId())) {
             throw new CardOperationException("Нельзя выполнить перевод на ту же карту");
         }
 
-        boolean fromIsFirst = request.fromCardId().compareTo(request.toCardId()) < 0;
+        boolean fromIsFirst = LOCK_ORDER.compare(request.fromCardId(), request.toCardId()) < 0;
         UUID firstId = fromIsFirst ? request.fromCardId() : request.toCardId();
         UUID secondId = fromIsFirst ? request.toCardId() : request.fromCardId();
 
-        Card first = cardRepository.findByIdWithLock(firstId)
+        Card first = cardLoader.apply(firstId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id: " + firstId + " не найдена"));
-        Card second = cardRepository.findByIdWithLock(secondId)
+        Card second = cardLoader.apply(secondId)
                 .orElseThrow(() -> new ResourceNotFoundException("Карта с id: " + secondId + " не найдена"));
 
         Card fromCard = fromIsFirst ? first : second;
@@ -51,15 +108,17 @@ public class TransferService {
         validateCardStatus(fromCard, "Карта отправителя");
         validateCardStatus(toCard, "Карта получателя");
 
-        if (fromCard.getBalance().compareTo(request.amount()) < 0) {
+        if (fromCard.getBalance().isLessThan(request.amount())) {
             throw new InsufficientFundsException("Недостаточно средств");
         }
 
-        fromCard.setBalance(fromCard.getBalance().subtract(request.amount()));
-        toCard.setBalance(toCard.getBalance().add(request.amount()));
+        fromCard.setBalance(fromCard.getBalance().minus(request.amount()));
+        toCard.setBalance(toCard.getBalance().plus(request.amount()));
 
         cardRepository.save(fromCard);
         cardRepository.save(toCard);
+        cardCache.evict(fromCard.getId());
+        cardCache.evict(toCard.getId());
 
         Transfer transfer = Transfer.builder()
                 .fromCard(fromCard)
@@ -67,7 +126,199 @@ public class TransferService {
                 .amount(request.amount())
                 .build();
 
-        return transferRepository.save(transfer);
+        Transfer saved = transferRepository.save(transfer);
+        ledgerService.recordTransfer(saved);
+        if (claim != null) {
+            idempotencyService.complete(claim, transferMapper.toResponse(saved));
+        }
+        return saved;
+    }
+
+    /**
+     * Перевод без предварительной блокировки карт: списание и зачисление выполняются
+     * условными UPDATE, которые сами проверяют владельца, статус и остаток.
+     * Строки блокируются только на время UPDATE, в том же порядке по id, что и в {@link #transfer}.
+     * Если условие не выполнено, карта перечитывается, чтобы выбросить то же исключение, что и обычный перевод
+     */
+    @Transactional
+    public TransferResponse transferConditional(TransferRequest request, UUID currentUserId) {
+        return transferConditional(request, currentUserId, null);
+    }
+
+    @Transactional
+    public TransferResponse transferConditional(TransferRequest request, UUID currentUserId,
+                                                TransferIdempotencyService.Claim claim) {
+        if (request.fromCardId().equals(request.toCardId())) {
+            throw new CardOperationException("Нельзя выполнить перевод на ту же карту");
+        }
+
+        UUID fromId = request.fromCardId();
+        UUID toId = request.toCardId();
+        Money amount = request.amount();
+
+        String fromMasked;
+        String toMasked;
+        if (LOCK_ORDER.compare(fromId, toId) < 0) {
+            fromMasked = debit(fromId, currentUserId, amount);
+            toMasked = credit(toId, currentUserId, amount);
+        } else {
+            toMasked = credit(toId, currentUserId, amount);
+            fromMasked = debit(fromId, currentUserId, amount);
+        }
+        cardCache.evict(fromId);
+        cardCache.evict(toId);
+
+        Transfer transfer = transferRepository.save(Transfer.builder()
+                .fromCard(cardRepository.getReferenceById(fromId))
+                .toCard(cardRepository.getReferenceById(toId))
+                .amount(amount)
+                .build());
+        ledgerService.recordTransfer(transfer);
+
+        TransferResponse response = TransferResponse.builder()
+                .id(transfer.getId())
+                .fromCardMasked(fromMasked)
+                .toCardMasked(toMasked)
+                .amount(transfer.getAmount())
+                .createdAt(transfer.getCreatedAt())
+                .build();
+        if (claim != null) {
+            idempotencyService.complete(claim, response);
+        }
+        return response;
+    }
+
+    /**
+     * Пакетный перевод. Все карты пакета блокируются одним запросом в порядке id,
+     * переводы применяются к балансам в памяти, а изменения записываются одним flush с пакетными INSERT/UPDATE.
+     * В режиме ATOMIC при любой ошибке в базу ничего не пишется, в режиме BEST_EFFORT пропускаются только ошибочные переводы
+     */
+    @Transactional
+    public BatchTransferResponse transferBatch(List<TransferRequest> requests, BatchTransferMode mode,
+                                               UUID currentUserId) {
+        BatchTransferMode effectiveMode = mode != null ? mode : BatchTransferMode.ATOMIC;
+
+        Set<UUID> cardIds = new HashSet<>();
+        for (TransferRequest request : requests) {
+            cardIds.add(request.fromCardId());
+            cardIds.add(request.toCardId());
+        }
+        Map<UUID, Card> cards = new HashMap<>();
+        for (Card card : cardRepository.findAllByIdWithLock(cardIds)) {
+            cards.put(card.getId(), card);
+        }
+
+        Map<UUID, Money> balances = new HashMap<>();
+        Map<Integer, Transfer> applied = new HashMap<>();
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                applied.put(i, applyInMemory(requests.get(i), cards, balances, currentUserId));
+            } catch (CardOperationException | AccessDeniedException
+                     | InsufficientFundsException | ResourceNotFoundException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        boolean rollback = effectiveMode == BatchTransferMode.ATOMIC && !errors.isEmpty();
+        if (!rollback && !applied.isEmpty()) {
+            balances.forEach((cardId, balance) -> {
+                cards.get(cardId).setBalance(balance);
+                cardCache.evict(cardId);
+            });
+            cardRepository.saveAll(cards.values());
+            transferRepository.saveAll(applied.values());
+            ledgerService.recordTransfers(applied.values());
+        }
+
+        List<BatchTransferItemResponse> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            BatchTransferItemResponse.BatchTransferItemResponseBuilder item = BatchTransferItemResponse.builder().index(i);
+            if (errors.containsKey(i)) {
+                item.status(BatchItemStatus.FAILED).error(errors.get(i));
+            } else if (rollback) {
+                item.status(BatchItemStatus.ROLLED_BACK);
+            } else {
+                item.status(BatchItemStatus.COMPLETED).transfer(transferMapper.toResponse(applied.get(i)));
+            }
+            results.add(item.build());
+        }
+
+        return BatchTransferResponse.builder()
+                .mode(effectiveMode)
+                .completed(rollback ? 0 : applied.size())
+                .failed(errors.size())
+                .results(results)
+                .build();
+    }
+
+    private Transfer applyInMemory(TransferRequest request, Map<UUID, Card> cards,
+                                   Map<UUID, Money> balances, UUID currentUserId) {
+        if (request.fromCardId().equals(request.toCardId())) {
+            throw new CardOperationException("Нельзя выполнить перевод на ту же карту");
+        }
+        Card fromCard = lockedCard(cards, request.fromCardId());
+        Card toCard = lockedCard(cards, request.toCardId());
+
+        if (!fromCard.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException("Карта отправителя вам не принадлежит");
+        }
+        if (!toCard.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException("Карта получателя вам не принадлежит");
+        }
+
+        validateCardStatus(fromCard, "Карта отправителя");
+        validateCardStatus(toCard, "Карта получателя");
+
+        Money fromBalance = balances.getOrDefault(fromCard.getId(), fromCard.getBalance());
+        if (fromBalance.isLessThan(request.amount())) {
+            throw new InsufficientFundsException("Недостаточно средств");
+        }
+        Money toBalance = balances.getOrDefault(toCard.getId(), toCard.getBalance());
+
+        balances.put(fromCard.getId(), fromBalance.minus(request.amount()));
+        balances.put(toCard.getId(), toBalance.plus(request.amount()));
+
+        return Transfer.builder()
+                .fromCard(fromCard)
+                .toCard(toCard)
+                .amount(request.amount())
+                .build();
+    }
+
+    private Card lockedCard(Map<UUID, Card> cards, UUID cardId) {
+        Card card = cards.get(cardId);
+        if (card == null) {
+            throw new ResourceNotFoundException("Карта с id: " + cardId + " не найдена");
+        }
+        return card;
+    }
+
+    private String debit(UUID cardId, UUID currentUserId, Money amount) {
+        Optional<String> masked = cardRepository.debitIfAllowed(cardId, currentUserId, amount.minorUnits());
+        if (masked.isEmpty()) {
+            explainRejection(cardId, currentUserId, "Карта отправителя");
+            throw new InsufficientFundsException("Недостаточно средств");
+        }
+        return masked.get();
+    }
+
+    private String credit(UUID cardId, UUID currentUserId, Money amount) {
+        Optional<String> masked = cardRepository.creditIfAllowed(cardId, currentUserId, amount.minorUnits());
+        if (masked.isEmpty()) {
+            explainRejection(cardId, currentUserId, "Карта получателя");
+            throw new CardOperationException("Карта получателя недоступна для зачисления");
+        }
+        return masked.get();
+    }
+
+    private void explainRejection(UUID cardId, UUID currentUserId, String label) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Карта с id: " + cardId + " не найдена"));
+        if (!card.getOwner().getId().equals(currentUserId)) {
+            throw new AccessDeniedException(label + " вам не принадлежит");
+        }
+        validateCardStatus(card, label);
     }
 
     private void validateCardStatus(Card card, String label) {
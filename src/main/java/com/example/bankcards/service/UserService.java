@@ -1,22 +1,34 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CursorPageResponseDto;
+import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenRevocationList;
+import com.example.bankcards.util.CursorCodec;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final TokenRevocationList tokenRevocationList;
 
     @Transactional(readOnly = true)
     public User getUserById(UUID id) {
@@ -29,6 +41,40 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
 
+    /**
+     * Страница пользователей без подсчёта общего числа записей
+     */
+    @Transactional(readOnly = true)
+    public Slice<User> getAllUsersSlice(Pageable pageable) {
+        return userRepository.findAllBy(pageable);
+    }
+
+    /**
+     * Страница пользователей по курсору (created_at, id), от новых к старым
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<UserResponse> getUsersAfter(String cursor, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        CursorCodec.Cursor after = CursorCodec.decodeOrFirstPage(cursor);
+
+        List<User> users = userRepository.findBefore(after.createdAt(), after.id(), Limit.of(pageSize + 1));
+
+        boolean hasNext = users.size() > pageSize;
+        List<User> page = hasNext ? users.subList(0, pageSize) : users;
+        String nextCursor = null;
+        if (hasNext) {
+            User last = page.getLast();
+            nextCursor = CursorCodec.encode(last.getCreatedAt(), last.getId());
+        }
+
+        return new CursorPageResponseDto<>(
+                page.stream().map(userMapper::toResponse).toList(),
+                pageSize,
+                nextCursor,
+                hasNext
+        );
+    }
+
     @Transactional
     public User enableUser(UUID id) {
         User user = userRepository.findById(id).orElseThrow(
@@ -44,6 +90,7 @@ public class UserService {
                 () -> new ResourceNotFoundException("Пользователь с id: " + id + " не найден")
         );
         user.setEnabled(false);
+        revokeTokens(user);
         return userRepository.save(user);
     }
 
@@ -53,5 +100,15 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Пользователь с id: " + id + " не найден"));
 
         user.setDeletedAt(LocalDateTime.now());
+        revokeTokens(user);
+    }
+
+    /**
+     * Отзыв всех выданных пользователю токенов. Нужен при любом изменении, после которого
+     * данные в токене (активность, роль) перестают быть верными
+     */
+    private void revokeTokens(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        tokenRevocationList.revoke(user.getId(), user.getTokenVersion());
     }
 }
@@ -16,6 +16,8 @@ import java.util.UUID;
 @UtilityClass
 public final class CardSpecification {
 
+    private static final char LIKE_ESCAPE = '\\';
+
     /**
      * Добавляет фильтр по ownerId, status, holderName в Specification
      *
@@ -34,8 +36,9 @@ public final class CardSpecification {
                 predicates.add(cb.equal(root.get("status"), status));
             }
             if (holderName != null && !holderName.isBlank()) {
+                // Выражение совпадает с триграммным индексом idx_cards_holder_name_trgm по lower(holder_name)
                 predicates.add(cb.like(cb.lower(root.get("holderName")),
-                        "%" + holderName.toLowerCase() + "%"));
+                        "%" + escapeLike(holderName.toLowerCase()) + "%", LIKE_ESCAPE));
             }
             if (!includeDeleted) {
                 predicates.add(cb.isNull(root.get("deletedAt")));
@@ -52,4 +55,19 @@ public final class CardSpecification {
     public static Specification<Card> byFilterAdmin(UUID ownerId, CardStatus status, String holderName) {
         return byFilter(ownerId, status, holderName, true);
     }
+
+    /**
+     * Экранирует символы шаблона LIKE, чтобы % и _ в имени держателя искались как обычные символы
+     */
+    static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
 }
@@ -5,17 +5,26 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Утилита шифрования AES-GCM для номеров карт.
- * Использует случайный 12-байтовый вектор инициализации (IV)
+ * Использует случайный 12-байтовый вектор инициализации (IV).
+ * Для поиска и проверки дубликатов номер дополнительно хешируется HMAC-SHA256 на отдельном ключе (blind index)
+ * <p>
+ * Формат шифротекста: Base64(IV || данные || тег). Экземпляры {@link Cipher} и {@link Mac} не потокобезопасны,
+ * поэтому берутся из пулов и возвращаются после операции: пул дорастает до числа одновременных вызовов
+ * и дальше не создаёт новых объектов. IV берётся из одного общего {@link SecureRandom}
  *
  * @author Владислав Степанов
  */
@@ -26,11 +35,22 @@ public class CardEncryptionUtil {
     private static final String ALGORITHM = "AES/GCM/NoPadding";
     private static final int GCM_IV_LENGTH = 12;
     private static final int GCM_TAG_LENGTH = 128;
+    private static final int GCM_TAG_BYTES = GCM_TAG_LENGTH / 8;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+    private static final byte[] HASH_KEY_LABEL = "card-number-hash".getBytes(StandardCharsets.UTF_8);
+    private static final SecureRandom IV_SOURCE = new SecureRandom();
 
     private final transient SecretKey secretKey;
+    private final transient SecretKey hashKey;
+    private final Queue<Cipher> ciphers = new ConcurrentLinkedQueue<>();
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
 
-    public CardEncryptionUtil(@Value("${app.encryption.secret-key}") String rawKey) {
+    public CardEncryptionUtil(@Value("${app.encryption.secret-key}") String rawKey,
+                              @Value("${app.encryption.hash-key:}") String rawHashKey) {
         this.secretKey = deriveKey(rawKey);
+        this.hashKey = rawHashKey == null || rawHashKey.isBlank()
+                ? deriveHashKey(secretKey)
+                : new SecretKeySpec(Base64.getDecoder().decode(rawHashKey), HASH_ALGORITHM);
     }
 
     /**
@@ -40,21 +60,23 @@ public class CardEncryptionUtil {
      * @return зашифрованная строка
      */
     public String encrypt(String plaintext) {
+        Cipher cipher = null;
         try {
+            byte[] input = plaintext.getBytes(StandardCharsets.UTF_8);
             byte[] iv = new byte[GCM_IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
+            IV_SOURCE.nextBytes(iv);
+            byte[] output = new byte[GCM_IV_LENGTH + input.length + GCM_TAG_BYTES];
+            System.arraycopy(iv, 0, output, 0, GCM_IV_LENGTH);
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            cipher = borrowCipher();
             cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
-            byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-
-            ByteBuffer buffer = ByteBuffer.allocate(iv.length + encrypted.length);
-            buffer.put(iv);
-            buffer.put(encrypted);
-            return Base64.getEncoder().encodeToString(buffer.array());
+            cipher.doFinal(input, 0, input.length, output, GCM_IV_LENGTH);
+            return Base64.getEncoder().encodeToString(output);
         } catch (Exception e) {
             log.error("Ошибка при шифровании номера", e);
             throw new IllegalStateException("Ошибка при шифровании номера", e);
+        } finally {
+            release(cipher);
         }
     }
 
@@ -65,21 +87,43 @@ public class CardEncryptionUtil {
      * @return дешифрованная строка
      */
     public String decrypt(String ciphertext) {
+        Cipher cipher = null;
         try {
             byte[] decoded = Base64.getDecoder().decode(ciphertext);
-            ByteBuffer buffer = ByteBuffer.wrap(decoded);
-
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            buffer.get(iv);
-            byte[] encryptedData = new byte[buffer.remaining()];
-            buffer.get(encryptedData);
 
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, iv));
-            return new String(cipher.doFinal(encryptedData), StandardCharsets.UTF_8);
+            cipher = borrowCipher();
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_LENGTH, decoded, 0, GCM_IV_LENGTH));
+            // Расшифровка на месте: Cipher допускает общий массив для входа и выхода
+            int length = cipher.doFinal(decoded, GCM_IV_LENGTH, decoded.length - GCM_IV_LENGTH, decoded, 0);
+            return new String(decoded, 0, length, StandardCharsets.UTF_8);
         } catch (Exception e) {
             log.error("Ошибка при дешифровании номера", e);
             throw new IllegalStateException("Ошибка при дешифровании номера", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    /**
+     * Детерминированный хеш номера карты для уникального индекса number_hash.
+     * Пробелы и прочие нецифровые символы не влияют на результат
+     *
+     * @param cardNumber - номер карты
+     * @return HMAC-SHA256 в hex, 64 символа
+     */
+    public String hash(String cardNumber) {
+        Mac mac = macs.poll();
+        try {
+            if (mac == null) {
+                mac = Mac.getInstance(HASH_ALGORITHM);
+                mac.init(hashKey);
+            }
+            byte[] digest = mac.doFinal(digits(cardNumber).getBytes(StandardCharsets.US_ASCII));
+            macs.offer(mac);
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            log.error("Ошибка при хешировании номера", e);
+            throw new IllegalStateException("Ошибка при хешировании номера", e);
         }
     }
 
@@ -90,7 +134,7 @@ public class CardEncryptionUtil {
      * @return Маска, формата (**** **** **** 1111)
      */
     public String mask(String cardNumber) {
-        String digits = cardNumber.replaceAll("[^0-9]", "");
+        String digits = digits(cardNumber);
         if (digits.length() < 4) {
             throw new IllegalArgumentException("Длина номера карты слишком короткая");
         }
@@ -98,6 +142,37 @@ public class CardEncryptionUtil {
         return "**** **** **** " + last4;
     }
 
+    private Cipher borrowCipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.poll();
+        return cipher != null ? cipher : Cipher.getInstance(ALGORITHM);
+    }
+
+    /**
+     * Возвращает шифр в пул. После ошибки шифр тоже пригоден: следующий init сбрасывает его состояние
+     */
+    private void release(Cipher cipher) {
+        if (cipher != null) {
+            ciphers.offer(cipher);
+        }
+    }
+
+    private static String digits(String cardNumber) {
+        return cardNumber.replaceAll("[^0-9]", "");
+    }
+
+    /**
+     * Ключ HMAC, если отдельный не задан: выводится из ключа шифрования, но не совпадает с ним
+     */
+    private SecretKey deriveHashKey(SecretKey encryptionKey) {
+        try {
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(new SecretKeySpec(encryptionKey.getEncoded(), HASH_ALGORITHM));
+            return new SecretKeySpec(mac.doFinal(HASH_KEY_LABEL), HASH_ALGORITHM);
+        } catch (Exception e) {
+            throw new IllegalStateException("Не удалось получить ключ хеширования номеров", e);
+        }
+    }
+
     private SecretKey deriveKey(String base64Key) {
         byte[] decoded = Base64.getDecoder().decode(base64Key);
         return new SecretKeySpec(decoded, "AES");
@@ -0,0 +1,56 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.CardOperationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Курсор постраничной выборки по (created_at, id): последняя отданная клиенту запись,
+ * закодированная в непрозрачную для клиента строку Base64 URL
+ */
+public final class CursorCodec {
+
+    /**
+     * Курсор первой страницы: позже любой записи и больше любого uuid
+     */
+    public static final Cursor FIRST_PAGE = new Cursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59), new UUID(-1L, -1L));
+
+    private static final char SEPARATOR = '|';
+
+    private CursorCodec() {
+    }
+
+    public static String encode(LocalDateTime createdAt, UUID id) {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Пустой курсор означает первую страницу
+     */
+    public static Cursor decodeOrFirstPage(String cursor) {
+        return cursor == null || cursor.isBlank() ? FIRST_PAGE : decode(cursor);
+    }
+
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new CardOperationException("Некорректный курсор страницы");
+            }
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new CardOperationException("Некорректный курсор страницы");
+        }
+    }
+
+    public record Cursor(LocalDateTime createdAt, UUID id) {
+    }
+}
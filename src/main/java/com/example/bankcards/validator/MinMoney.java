@@ -0,0 +1,28 @@
+package com.example.bankcards.validator;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Минимальная допустимая сумма {@link com.example.bankcards.money.Money}, аналог {@code @DecimalMin}.
+ * Значение задаётся десятичной строкой, например "0.01"; null считается корректным
+ *
+ * @see MinMoneyValidator
+ */
+@Target({ElementType.FIELD, ElementType.RECORD_COMPONENT, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = MinMoneyValidator.class)
+public @interface MinMoney {
+    String value();
+
+    String message() default "Сумма меньше допустимой";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
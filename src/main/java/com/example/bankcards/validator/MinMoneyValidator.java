@@ -0,0 +1,20 @@
+package com.example.bankcards.validator;
+
+import com.example.bankcards.money.Money;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+public class MinMoneyValidator implements ConstraintValidator<MinMoney, Money> {
+
+    private Money min;
+
+    @Override
+    public void initialize(MinMoney constraint) {
+        min = Money.parse(constraint.value());
+    }
+
+    @Override
+    public boolean isValid(Money value, ConstraintValidatorContext context) {
+        return value == null || !value.isLessThan(min);
+    }
+}
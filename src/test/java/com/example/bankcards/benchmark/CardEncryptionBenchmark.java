@@ -0,0 +1,142 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.CardEncryptionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шифрование номеров карт: {@link CardEncryptionUtil} с пулом шифров против прежней реализации
+ * (новые SecureRandom и Cipher на каждый вызов, копирование через ByteBuffer) в одном и во всех потоках.
+ * Экземпляр утилиты общий для всех потоков, как бин в приложении. Базы данных не требует.
+ * Байты на операцию (gc.alloc.rate.norm) видны с профайлером gc.
+ * <p>
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="CardEncryptionBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class CardEncryptionBenchmark {
+
+    private static final String KEY = "edhCGwPguciHN8k+JyQHVrS/Stytke62CrSf0ED/MPc=";
+    private static final String CARD_NUMBER = "4276123456789012";
+
+    private CardEncryptionUtil pooled;
+    private SecretKey legacyKey;
+    private String ciphertext;
+
+    @Setup
+    public void setUp() {
+        pooled = new CardEncryptionUtil(KEY, "");
+        legacyKey = new SecretKeySpec(Base64.getDecoder().decode(KEY), "AES");
+        ciphertext = pooled.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String encryptPooled() {
+        return pooled.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encryptPooledAllThreads() {
+        return pooled.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String encryptLegacy() throws GeneralSecurityException {
+        return legacyEncrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String encryptLegacyAllThreads() throws GeneralSecurityException {
+        return legacyEncrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String decryptPooled() {
+        return pooled.decrypt(ciphertext);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String decryptPooledAllThreads() {
+        return pooled.decrypt(ciphertext);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String decryptLegacy() throws GeneralSecurityException {
+        return legacyDecrypt(ciphertext);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String decryptLegacyAllThreads() throws GeneralSecurityException {
+        return legacyDecrypt(ciphertext);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String hash() {
+        return pooled.hash(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String hashAllThreads() {
+        return pooled.hash(CARD_NUMBER);
+    }
+
+    private String legacyEncrypt(String plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[12];
+        new SecureRandom().nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, legacyKey, new GCMParameterSpec(128, iv));
+        byte[] encrypted = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = ByteBuffer.allocate(iv.length + encrypted.length);
+        buffer.put(iv);
+        buffer.put(encrypted);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private String legacyDecrypt(String text) throws GeneralSecurityException {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(text));
+        byte[] iv = new byte[12];
+        buffer.get(iv);
+        byte[] encryptedData = new byte[buffer.remaining()];
+        buffer.get(encryptedData);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, legacyKey, new GCMParameterSpec(128, iv));
+        return new String(cipher.doFinal(encryptedData), StandardCharsets.UTF_8);
+    }
+}
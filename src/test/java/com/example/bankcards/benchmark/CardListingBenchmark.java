@@ -0,0 +1,119 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardApplication;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.enums.UserRole;
+import com.example.bankcards.mapping.CardMapper;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.specification.CardSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Страница из 100 карт: загрузка сущностей с владельцем и маппинг через CardMapper
+ * против выражения конструктора CardResponse в запросе.
+ * Требует запущенный PostgreSQL и переменные окружения из .env.example (профиль dev).
+ * Выделение памяти на страницу показывает профайлер gc (gc.alloc.rate.norm).
+ * <p>
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="CardListingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class CardListingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private CardRepository cardRepository;
+    private CardMapper cardMapper;
+    private TransactionTemplate readOnly;
+    private Specification<Card> spec;
+    private Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankCardApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("dev")
+                .properties("spring.jpa.show-sql=false")
+                .run();
+        cardRepository = context.getBean(CardRepository.class);
+        cardMapper = context.getBean(CardMapper.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        User owner = context.getBean(UserRepository.class).save(User.builder()
+                .username("bench-" + UUID.randomUUID())
+                .email(UUID.randomUUID() + "@bench.local")
+                .password("-")
+                .role(UserRole.USER)
+                .enabled(true)
+                .build());
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            cardRepository.save(Card.builder()
+                    .encryptedNumber(UUID.randomUUID().toString())
+                    .maskedNumber("**** **** **** " + String.format("%04d", i))
+                    .owner(owner)
+                    .holderName("BENCHMARK")
+                    .expiryDate(LocalDate.now().plusYears(3))
+                    .status(CardStatus.ACTIVE)
+                    .balance(Money.ofMajor(1000))
+                    .build());
+        }
+
+        spec = CardSpecification.byFilter(owner.getId(), null, null);
+        pageable = PageRequest.of(0, PAGE_SIZE, Sort.by("createdAt"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CardResponse> entitiesWithMapper() {
+        return readOnly.execute(status -> {
+            Page<Card> page = cardRepository.findAll(spec, pageable);
+            return page.getContent().stream().map(cardMapper::toResponse).toList();
+        });
+    }
+
+    @Benchmark
+    public List<CardResponse> projection() {
+        return readOnly.execute(status -> cardRepository.findResponses(spec, pageable).getContent());
+    }
+}
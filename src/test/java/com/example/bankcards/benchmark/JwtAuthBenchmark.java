@@ -0,0 +1,110 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.UserRole;
+import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.security.JwtClaims;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenRevocationList;
+import com.example.bankcards.security.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость аутентификации запроса по JWT без обращения к базе: прежняя проверка
+ * (три разбора токена с новым парсером на каждый), однократная проверка без кеша, проверка через кеш
+ * и весь {@link JwtAuthenticationFilter}, который строит пользователя из токена. Базы данных не требует.
+ * <p>
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="JwtAuthBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "Khu1tdIYdKNeBkMo+v4rUArFH9ArcBLz/F5CtERDHPk=";
+
+    private final UserPrincipal user = new UserPrincipal(User.builder()
+            .id(UUID.randomUUID())
+            .username("ivan")
+            .password("-")
+            .role(UserRole.USER)
+            .enabled(true)
+            .build());
+
+    private SecretKey key;
+    private JwtUtil cached;
+    private JwtUtil uncached;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        cached = new JwtUtil(SECRET, 3_600_000, new SimpleMeterRegistry(), true, 10_000);
+        uncached = new JwtUtil(SECRET, 3_600_000, new SimpleMeterRegistry(), false, 10_000);
+        filter = new JwtAuthenticationFilter(cached, new TokenRevocationList(null, 3_600_000));
+        token = cached.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String username = legacyClaims().getSubject();
+        return legacyClaims().getSubject().equals(username) && !legacyClaims().getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public Optional<JwtClaims> validateUncached() {
+        return uncached.validate(token);
+    }
+
+    @Benchmark
+    public Optional<JwtClaims> validateCached() {
+        return cached.validate(token);
+    }
+
+    @Benchmark
+    public Authentication filterCached() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/cards/myCards");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private Claims legacyClaims() {
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.security.LoginThrottle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость проверки лимита попыток входа: отказ по исчерпанной корзине (перебор пароля одного пользователя)
+ * и разрешённая попытка в одном и во всех потоках. Ограничитель общий для всех потоков, как бин в приложении.
+ * Базы данных не требует.
+ * <p>
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="LoginThrottleBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class LoginThrottleBenchmark {
+
+    private LoginThrottle strict;
+    private LoginThrottle generous;
+
+    @Setup
+    public void setUp() {
+        strict = new LoginThrottle(new SimpleMeterRegistry(), true, 65536, 1, 1, 1, 1);
+        generous = new LoginThrottle(new SimpleMeterRegistry(), true, 65536,
+                Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        strict.acquire("victim", "10.0.0.2");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean rejected() {
+        return attempt(strict);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean rejectedContended() {
+        return attempt(strict);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean allowed() {
+        return attempt(generous);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean allowedContended() {
+        return attempt(generous);
+    }
+
+    private static boolean attempt(LoginThrottle throttle) {
+        try {
+            throttle.acquire("victim", "10.0.0.1");
+            return true;
+        } catch (TooManyRequestsException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link Money} и BigDecimal на операциях перевода: проверка остатка, списание и зачисление,
+ * а также разбор и запись суммы в JSON. Базы данных не требует.
+ * Частота выделения памяти видна с профайлером gc.
+ * <p>
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="MoneyBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final String REQUEST_JSON = "{\"fromCardId\":\"" + UUID.randomUUID()
+            + "\",\"toCardId\":\"" + UUID.randomUUID() + "\",\"amount\":1250.50}";
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private BigDecimal decimalFrom;
+    private BigDecimal decimalTo;
+    private BigDecimal decimalAmount;
+
+    private Money moneyFrom;
+    private Money moneyTo;
+    private Money moneyAmount;
+
+    private TransferRequest request;
+
+    @Setup
+    public void setUp() {
+        decimalFrom = new BigDecimal("1000000.00");
+        decimalTo = new BigDecimal("250.00");
+        decimalAmount = new BigDecimal("1250.50");
+        moneyFrom = Money.of(decimalFrom);
+        moneyTo = Money.of(decimalTo);
+        moneyAmount = Money.of(decimalAmount);
+        request = jsonMapper.readValue(REQUEST_JSON, TransferRequest.class);
+    }
+
+    @Benchmark
+    public void transferBigDecimal(Blackhole bh) {
+        if (decimalFrom.compareTo(decimalAmount) < 0) {
+            throw new IllegalStateException();
+        }
+        bh.consume(decimalFrom.subtract(decimalAmount));
+        bh.consume(decimalTo.add(decimalAmount));
+    }
+
+    @Benchmark
+    public void transferMoney(Blackhole bh) {
+        if (moneyFrom.isLessThan(moneyAmount)) {
+            throw new IllegalStateException();
+        }
+        bh.consume(moneyFrom.minus(moneyAmount));
+        bh.consume(moneyTo.plus(moneyAmount));
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal() {
+        return new BigDecimal("1250.50");
+    }
+
+    @Benchmark
+    public Money parseMoney() {
+        return Money.parse("1250.50");
+    }
+
+    @Benchmark
+    public TransferRequest readRequestJson() {
+        return jsonMapper.readValue(REQUEST_JSON, TransferRequest.class);
+    }
+
+    @Benchmark
+    public String writeRequestJson() {
+        return jsonMapper.writeValueAsString(request);
+    }
+}
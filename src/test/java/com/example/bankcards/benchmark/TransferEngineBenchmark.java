@@ -0,0 +1,119 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankCardApplication;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.enums.UserRole;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.TransferService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение пессимистичного перевода и перевода через условные UPDATE.
+ * Требует запущенный PostgreSQL и переменные окружения из .env.example (профиль dev).
+ * Параметр cards задаёт число карт, между которыми идут переводы: чем он меньше, тем выше конкуренция за строки.
+ * <p>
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="TransferEngineBenchmark -t 8"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class TransferEngineBenchmark {
+
+    private static final Money AMOUNT = Money.ofMajor(1);
+
+    @Param({"2", "16", "256"})
+    public int cards;
+
+    private ConfigurableApplicationContext context;
+    private TransferService transferService;
+    private UUID ownerId;
+    private List<UUID> cardIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankCardApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("dev")
+                .properties("spring.jpa.show-sql=false")
+                .run();
+        transferService = context.getBean(TransferService.class);
+
+        User owner = context.getBean(UserRepository.class).save(User.builder()
+                .username("bench-" + UUID.randomUUID())
+                .email(UUID.randomUUID() + "@bench.local")
+                .password("-")
+                .role(UserRole.USER)
+                .enabled(true)
+                .build());
+        ownerId = owner.getId();
+
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+        cardIds = new ArrayList<>(cards);
+        for (int i = 0; i < cards; i++) {
+            Card card = cardRepository.save(Card.builder()
+                    .encryptedNumber(UUID.randomUUID().toString())
+                    .maskedNumber("**** **** **** " + String.format("%04d", i))
+                    .owner(owner)
+                    .holderName("BENCHMARK")
+                    .expiryDate(LocalDate.now().plusYears(3))
+                    .status(CardStatus.ACTIVE)
+                    .balance(Money.ofMajor(1_000_000_000))
+                    .build());
+            cardIds.add(card.getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object pessimistic() {
+        return transferService.transfer(nextRequest(), ownerId);
+    }
+
+    @Benchmark
+    public Object conditionalUpdate() {
+        return transferService.transferConditional(nextRequest(), ownerId);
+    }
+
+    private TransferRequest nextRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(cards);
+        int to = (from + 1 + random.nextInt(cards - 1)) % cards;
+        return new TransferRequest(cardIds.get(from), cardIds.get(to), AMOUNT);
+    }
+}
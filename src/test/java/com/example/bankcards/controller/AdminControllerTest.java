@@ -0,0 +1,191 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.config.TestSecurityConfig;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.DailyIssuance;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.enums.ExportFormat;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.CardMapper;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenRevocationList;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardStatsService;
+import com.example.bankcards.service.TransferExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AdminController.class)
+@Import(TestSecurityConfig.class)
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private TransferExportService transferExportService;
+
+    @MockitoBean
+    private CardService cardService;
+
+    @MockitoBean
+    private CardMapper cardMapper;
+
+    @MockitoBean
+    private CardStatsService cardStatsService;
+
+    @MockitoBean
+    private JwtUtil jwtUtil;
+
+    @MockitoBean
+    private TokenRevocationList tokenRevocationList;
+
+    private final LocalDateTime from = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private final LocalDateTime to = LocalDateTime.of(2026, 2, 1, 0, 0);
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportTransfers_ndjson_streamsBody() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("{\"id\":\"1\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(transferExportService).export(eq(from), eq(to), eq(ExportFormat.NDJSON), any());
+
+        MvcResult result = mockMvc.perform(get("/api/v1/admin/transfers/export")
+                        .param("from", "2026-01-01T00:00:00")
+                        .param("to", "2026-02-01T00:00:00")
+                        .param("format", "NDJSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"transfers.ndjson\""))
+                .andExpect(content().string("{\"id\":\"1\"}\n"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportTransfers_invalidRange_returns400() throws Exception {
+        doThrow(new CardOperationException("Начало периода должно быть раньше его конца"))
+                .when(transferExportService).validateRange(to, from);
+
+        mockMvc.perform(get("/api/v1/admin/transfers/export")
+                        .param("from", "2026-02-01T00:00:00")
+                        .param("to", "2026-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void exportTransfers_user_returns403() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/transfers/export")
+                        .param("from", "2026-01-01T00:00:00")
+                        .param("to", "2026-02-01T00:00:00"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void lookupCard_found_returnsCard() throws Exception {
+        UUID cardId = UUID.randomUUID();
+        Card card = Card.builder().id(cardId).build();
+        when(cardService.findByNumber("1234567890123456")).thenReturn(card);
+        when(cardMapper.toResponse(card)).thenReturn(CardResponse.builder()
+                .id(cardId)
+                .maskedNumber("**** **** **** 3456")
+                .build());
+
+        mockMvc.perform(post("/api/v1/admin/cards/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cardNumber\":\"1234567890123456\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(cardId.toString()))
+                .andExpect(jsonPath("$.maskedNumber").value("**** **** **** 3456"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void lookupCard_unknownNumber_returns404() throws Exception {
+        when(cardService.findByNumber("1234567890123456"))
+                .thenThrow(new ResourceNotFoundException("Карта с указанным номером не найдена"));
+
+        mockMvc.perform(post("/api/v1/admin/cards/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cardNumber\":\"1234567890123456\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void lookupCard_invalidNumber_returns400() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/cards/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"cardNumber\":\"1234 5678\"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(cardService, never()).findByNumber(any());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getStats_admin_returnsAggregates() throws Exception {
+        when(cardStatsService.stats(7)).thenReturn(CardStatsResponse.builder()
+                .cardsByStatus(Map.of(CardStatus.ACTIVE, 3L, CardStatus.BLOCKED, 1L, CardStatus.EXPIRED, 0L))
+                .totalCards(4)
+                .totalBalance(Money.ofMajor(1000))
+                .averageBalance(Money.ofMajor(250))
+                .issuedPerDay(List.of(new DailyIssuance(LocalDate.of(2026, 3, 1), 4)))
+                .build());
+
+        mockMvc.perform(get("/api/v1/admin/stats").param("days", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cardsByStatus.ACTIVE").value(3))
+                .andExpect(jsonPath("$.totalCards").value(4))
+                .andExpect(jsonPath("$.averageBalance").value(250.0))
+                .andExpect(jsonPath("$.issuedPerDay[0].issued").value(4));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getStats_user_returns403() throws Exception {
+        mockMvc.perform(get("/api/v1/admin/stats"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -48,7 +48,7 @@ class AuthControllerTest {
         LoginRequest request = new LoginRequest("admin", "password");
         AuthResponse response = new AuthResponse("jwt-token", "admin", "ROLE_ADMIN");
 
-        when(authService.login(any())).thenReturn(response);
+        when(authService.login(any(), any())).thenReturn(response);
 
         mockMvc.perform(post("/api/v1/auth/login")
                         .with(csrf())
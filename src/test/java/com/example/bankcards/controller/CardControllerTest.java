@@ -1,20 +1,37 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.config.TestSecurityConfig;
+import com.example.bankcards.dto.AsyncTransferStatusResponse;
+import com.example.bankcards.dto.BatchTransferItemResponse;
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.BulkCardImportError;
+import com.example.bankcards.dto.BulkCardImportResponse;
 import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.CursorPageResponseDto;
+import com.example.bankcards.dto.LedgerBalanceResponse;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.AsyncTransferStatus;
+import com.example.bankcards.enums.BatchItemStatus;
+import com.example.bankcards.enums.BatchTransferMode;
 import com.example.bankcards.enums.CardStatus;
 import com.example.bankcards.enums.UserRole;
+import com.example.bankcards.exception.TooManyRequestsException;
 import com.example.bankcards.mapping.CardMapper;
+import com.example.bankcards.money.Money;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenRevocationList;
 import com.example.bankcards.security.UserPrincipal;
+import com.example.bankcards.service.AsyncTransferService;
+import com.example.bankcards.service.CardBulkImportService;
 import com.example.bankcards.service.CardService;
-import com.example.bankcards.service.TransferService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.service.TransferEngine;
+import com.example.bankcards.service.TransferHistoryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,13 +39,13 @@ import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.json.JsonMapper;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,13 +53,17 @@ import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -54,8 +75,7 @@ public class CardControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
-    private final ObjectMapper objectMapper = new ObjectMapper()
-            .findAndRegisterModules();
+    private final JsonMapper objectMapper = JsonMapper.builder().build();
 
     @MockitoBean
     private CardService cardService;
@@ -64,13 +84,25 @@ public class CardControllerTest {
     private CardMapper cardMapper;
 
     @MockitoBean
-    private TransferService transferService;
+    private TransferEngine transferEngine;
+
+    @MockitoBean
+    private AsyncTransferService asyncTransferService;
+
+    @MockitoBean
+    private LedgerService ledgerService;
+
+    @MockitoBean
+    private TransferHistoryService transferHistoryService;
+
+    @MockitoBean
+    private CardBulkImportService cardBulkImportService;
 
     @MockitoBean
     private JwtUtil jwtUtil;
 
     @MockitoBean
-    private UserDetailsService userDetailsService;
+    private TokenRevocationList tokenRevocationList;
 
 
     private UUID cardId;
@@ -93,7 +125,7 @@ public class CardControllerTest {
                 .ownerUsername("Ivan Ivanov")
                 .expiryDate(LocalDate.of(2027, 12, 31))
                 .status(CardStatus.ACTIVE)
-                .balance(BigDecimal.valueOf(5000))
+                .balance(Money.ofMajor(5000))
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
@@ -114,7 +146,7 @@ public class CardControllerTest {
                 .holderName("IVAN IVANOV")
                 .expiryDate(LocalDate.of(2027, 12, 31))
                 .status(CardStatus.ACTIVE)
-                .balance(BigDecimal.valueOf(5000))
+                .balance(Money.ofMajor(5000))
                 .build();
 
         userPrincipal = new UserPrincipal(testUser);
@@ -126,7 +158,7 @@ public class CardControllerTest {
     void createCard_admin_returns201() throws Exception {
         CreateCardRequest request = new CreateCardRequest(
                 userId, "1234567890123456", "IVAN IVANOV",
-                LocalDate.of(2027, 12, 31), BigDecimal.valueOf(5000)
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
         );
 
         when(cardService.createCard(any())).thenReturn(new Card());
@@ -146,7 +178,7 @@ public class CardControllerTest {
     void createCard_user_returns403() throws Exception {
         CreateCardRequest request = new CreateCardRequest(
                 userId, "1234567890123456", "IVAN IVANOV",
-                LocalDate.of(2027, 12, 31), BigDecimal.valueOf(5000)
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
         );
 
         mockMvc.perform(post("/api/v1/cards")
@@ -163,11 +195,40 @@ public class CardControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void importCards_admin_returnsReport() throws Exception {
+        when(cardBulkImportService.importCsv(any())).thenReturn(BulkCardImportResponse.builder()
+                .total(2)
+                .created(1)
+                .failed(1)
+                .errors(List.of(new BulkCardImportError(3, "Карта с таким номером уже выпущена")))
+                .build());
+
+        mockMvc.perform(post("/api/v1/cards/bulk")
+                        .contentType("text/csv")
+                        .content("ownerId,cardNumber,holderName,expiryDate,initialBalance\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void importCards_user_returns403() throws Exception {
+        mockMvc.perform(post("/api/v1/cards/bulk")
+                        .contentType("text/csv")
+                        .content(""))
+                .andExpect(status().isForbidden());
+
+        verify(cardBulkImportService, never()).importCsv(any());
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void getAllCards_admin_returns200() throws Exception {
         when(cardService.getAllCards(any(), any(), any()))
-                .thenReturn(new PageImpl<>(List.of(card), PageRequest.of(0, 20), 1));
+                .thenReturn(new PageImpl<>(List.of(cardResponse), PageRequest.of(0, 20), 1));
 
         mockMvc.perform(get("/api/v1/cards")
                         .param("page", "0")
@@ -181,14 +242,39 @@ public class CardControllerTest {
     @WithMockUser(roles = "ADMIN")
     void getAllCards_filterByStatus_returns200() throws Exception {
         when(cardService.getAllCards(eq(CardStatus.ACTIVE), any(), any()))
-                .thenReturn(new PageImpl<>(List.of(card), PageRequest.of(0, 20), 1));
-        when(cardMapper.toResponse(any())).thenReturn(cardResponse);
+                .thenReturn(new PageImpl<>(List.of(cardResponse), PageRequest.of(0, 20), 1));
 
         mockMvc.perform(get("/api/v1/cards?status=ACTIVE"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].status").value("ACTIVE"));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCardsAfter_firstPage_returnsCursorPage() throws Exception {
+        when(cardService.getAllCardsAfter(any(), any(), isNull(), eq(20)))
+                .thenReturn(new CursorPageResponseDto<>(List.of(cardResponse), 20, "next", true));
+
+        mockMvc.perform(get("/api/v1/cards/cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(cardId.toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllCardsSlice_returnsSliceWithoutTotals() throws Exception {
+        when(cardService.getAllCardsSlice(any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(cardResponse), PageRequest.of(0, 20), true));
+
+        mockMvc.perform(get("/api/v1/cards/slice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        verify(cardService, never()).getAllCards(any(), any(), any());
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void getAllCards_user_returns403() throws Exception {
@@ -200,8 +286,7 @@ public class CardControllerTest {
     @Test
     void getMyCards_user_returns200() throws Exception {
         when(cardService.getCardsByOwner(eq(userId), any(), any()))
-                .thenReturn(new PageImpl<>(List.of(card), PageRequest.of(0, 20), 1));
-        when(cardMapper.toResponse(any())).thenReturn(cardResponse);
+                .thenReturn(new PageImpl<>(List.of(cardResponse), PageRequest.of(0, 20), 1));
 
         mockMvc.perform(get("/api/v1/cards/myCards")
                         .with(user(userPrincipal)))
@@ -210,6 +295,20 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.content[0].ownerId").value(userId.toString()));
     }
 
+    @Test
+    void getMyCardsAfter_user_returnsCursorPage() throws Exception {
+        when(cardService.getCardsByOwnerAfter(userId, null, "abc", 10))
+                .thenReturn(new CursorPageResponseDto<>(List.of(cardResponse), 10, null, false));
+
+        mockMvc.perform(get("/api/v1/cards/myCards/cursor")
+                        .param("cursor", "abc")
+                        .param("size", "10")
+                        .with(user(userPrincipal)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].ownerId").value(userId.toString()))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
     @Test
     void getMyCards_unauthenticated_returns401() throws Exception {
         mockMvc.perform(get("/api/v1/cards/myCards"))
@@ -219,8 +318,7 @@ public class CardControllerTest {
 
     @Test
     void getCard_owner_returns200() throws Exception {
-        when(cardService.getCard(eq(cardId), eq(userId))).thenReturn(card);
-        when(cardMapper.toResponse(any())).thenReturn(cardResponse);
+        when(cardService.getCard(eq(cardId), eq(userId))).thenReturn(cardResponse);
 
         mockMvc.perform(get("/api/v1/cards/{id}", cardId)
                         .with(user(userPrincipal)))
@@ -321,17 +419,17 @@ public class CardControllerTest {
     @Test
     void transfer_user_returns200() throws Exception {
         TransferRequest request = new TransferRequest(
-                UUID.randomUUID(), UUID.randomUUID(), BigDecimal.valueOf(1000)
+                UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(1000)
         );
-        Transfer response = Transfer.builder()
+        TransferResponse response = TransferResponse.builder()
                 .id(UUID.randomUUID())
-                .fromCard(Card.builder().maskedNumber("**** **** **** 1111").build())
-                .toCard(Card.builder().maskedNumber("**** **** **** 2222").build())
-                .amount(BigDecimal.valueOf(1000))
+                .fromCardMasked("**** **** **** 1111")
+                .toCardMasked("**** **** **** 2222")
+                .amount(Money.ofMajor(1000))
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        when(transferService.transfer(any(), eq(userId))).thenReturn(response);
+        when(transferEngine.transfer(any(), eq(userId), any())).thenReturn(response);
 
         mockMvc.perform(post("/api/v1/cards/transfer")
                         .with(user(userPrincipal))
@@ -344,10 +442,31 @@ public class CardControllerTest {
                 .andExpect(jsonPath("$.amount").value(1000));
     }
 
+    @Test
+    void transfer_withIdempotencyKey_passesKeyToEngine() throws Exception {
+        TransferRequest request = new TransferRequest(
+                UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(1000)
+        );
+        TransferResponse response = TransferResponse.builder()
+                .id(UUID.randomUUID())
+                .amount(Money.ofMajor(1000))
+                .build();
+
+        when(transferEngine.transfer(any(), eq(userId), eq("retry-42"))).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/cards/transfer")
+                        .with(user(userPrincipal))
+                        .header("Idempotency-Key", "retry-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(response.id().toString()));
+    }
+
     @Test
     void transfer_zeroAmount_returns400() throws Exception {
         TransferRequest request = new TransferRequest(
-                UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ZERO
+                UUID.randomUUID(), UUID.randomUUID(), Money.ZERO
         );
 
         mockMvc.perform(post("/api/v1/cards/transfer")
@@ -361,7 +480,7 @@ public class CardControllerTest {
     @Test
     void transfer_unauthenticated_returns401() throws Exception {
         TransferRequest request = new TransferRequest(
-                UUID.randomUUID(), UUID.randomUUID(), BigDecimal.valueOf(100)
+                UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(100)
         );
 
         mockMvc.perform(post("/api/v1/cards/transfer")
@@ -370,4 +489,142 @@ public class CardControllerTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isUnauthorized());
     }
-}
\ No newline at end of file
+
+    @Test
+    void transferBatch_user_returns200() throws Exception {
+        BatchTransferRequest request = new BatchTransferRequest(
+                List.of(new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(100))),
+                BatchTransferMode.BEST_EFFORT
+        );
+        BatchTransferResponse response = BatchTransferResponse.builder()
+                .mode(BatchTransferMode.BEST_EFFORT)
+                .completed(0)
+                .failed(1)
+                .results(List.of(BatchTransferItemResponse.builder()
+                        .index(0).status(BatchItemStatus.FAILED).error("Недостаточно средств").build()))
+                .build();
+
+        when(transferEngine.transferBatch(any(), eq(userId))).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/cards/transfers/batch")
+                        .with(user(userPrincipal))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[0].status").value("FAILED"));
+    }
+
+    @Test
+    void transferBatch_emptyList_returns400() throws Exception {
+        BatchTransferRequest request = new BatchTransferRequest(List.of(), BatchTransferMode.ATOMIC);
+
+        mockMvc.perform(post("/api/v1/cards/transfers/batch")
+                        .with(user(userPrincipal))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void transferAsync_user_returns202WithStatusLocation() throws Exception {
+        TransferRequest request = new TransferRequest(
+                UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(100)
+        );
+        UUID transferId = UUID.randomUUID();
+        AsyncTransferStatusResponse response = AsyncTransferStatusResponse.builder()
+                .id(transferId)
+                .status(AsyncTransferStatus.PENDING)
+                .build();
+
+        when(asyncTransferService.submit(any(), eq(userId), any())).thenReturn(response);
+
+        mockMvc.perform(post("/api/v1/cards/transfers/async")
+                        .with(user(userPrincipal))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/cards/transfers/" + transferId + "/status"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void transferAsync_queueFull_returns429() throws Exception {
+        TransferRequest request = new TransferRequest(
+                UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(100)
+        );
+
+        when(asyncTransferService.submit(any(), eq(userId), any()))
+                .thenThrow(new TooManyRequestsException("Очередь переводов заполнена, повторите попытку позже"));
+
+        mockMvc.perform(post("/api/v1/cards/transfers/async")
+                        .with(user(userPrincipal))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void getTransferStatus_user_returns200() throws Exception {
+        UUID transferId = UUID.randomUUID();
+        AsyncTransferStatusResponse response = AsyncTransferStatusResponse.builder()
+                .id(transferId)
+                .status(AsyncTransferStatus.FAILED)
+                .error("Недостаточно средств")
+                .build();
+
+        when(asyncTransferService.getStatus(transferId, userId)).thenReturn(response);
+
+        mockMvc.perform(get("/api/v1/cards/transfers/" + transferId + "/status")
+                        .with(user(userPrincipal)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.error").value("Недостаточно средств"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getBalanceAsOf_admin_returns200() throws Exception {
+        LocalDateTime asOf = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LedgerBalanceResponse response = LedgerBalanceResponse.builder()
+                .cardId(cardId)
+                .balance(Money.ofMajor(750))
+                .asOf(asOf)
+                .entriesAfterSnapshot(2)
+                .build();
+
+        when(ledgerService.balanceAsOf(cardId, asOf)).thenReturn(response);
+
+        mockMvc.perform(get("/api/v1/cards/" + cardId + "/balance").param("asOf", "2026-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(750))
+                .andExpect(jsonPath("$.entriesAfterSnapshot").value(2));
+    }
+
+    @Test
+    void getBalanceAsOf_user_returns403() throws Exception {
+        mockMvc.perform(get("/api/v1/cards/" + cardId + "/balance")
+                        .with(user(userPrincipal)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getTransferHistory_owner_returns200() throws Exception {
+        TransferResponse transfer = TransferResponse.builder()
+                .id(UUID.randomUUID())
+                .amount(Money.ofMajor(100))
+                .build();
+
+        when(transferHistoryService.getHistory(cardId, userId, "abc", 10))
+                .thenReturn(new CursorPageResponseDto<>(List.of(transfer), 10, "next", true));
+
+        mockMvc.perform(get("/api/v1/cards/" + cardId + "/transfers")
+                        .param("cursor", "abc")
+                        .param("size", "10")
+                        .with(user(userPrincipal)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(transfer.id().toString()))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+}
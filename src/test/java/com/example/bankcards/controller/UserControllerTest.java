@@ -1,11 +1,13 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.config.TestSecurityConfig;
+import com.example.bankcards.dto.CursorPageResponseDto;
 import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.enums.UserRole;
 import com.example.bankcards.mapping.UserMapper;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.TokenRevocationList;
 import com.example.bankcards.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +16,7 @@ import org.springframework.boot.webmvc.test.autoconfigure.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -48,6 +51,9 @@ class UserControllerTest {
     @MockitoBean
     private JwtUtil jwtUtil;
 
+    @MockitoBean
+    private TokenRevocationList tokenRevocationList;
+
     private UUID userId;
     private User user;
     private UserResponse userResponse;
@@ -90,6 +96,32 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.totalPages").value(1));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getAllUsersSlice_returnsSliceWithoutTotals() throws Exception {
+        when(userService.getAllUsersSlice(any()))
+                .thenReturn(new SliceImpl<>(List.of(user), PageRequest.of(0, 20), false));
+        when(userMapper.toResponse(any())).thenReturn(userResponse);
+
+        mockMvc.perform(get("/api/v1/users/slice"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(userId.toString()))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.totalPages").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getUsersAfter_returnsCursorPage() throws Exception {
+        when(userService.getUsersAfter("abc", 20))
+                .thenReturn(new CursorPageResponseDto<>(List.of(userResponse), 20, null, false));
+
+        mockMvc.perform(get("/api/v1/users/cursor").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].username").value("Ivan Ivanov"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     void getAllUsers_user_returns403() throws Exception {
@@ -0,0 +1,79 @@
+package com.example.bankcards.money;
+
+import com.example.bankcards.dto.TransferRequest;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.DatabindException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    @Test
+    void parse_plainDecimals() {
+        assertEquals(123_45, Money.parse("123.45").minorUnits());
+        assertEquals(123_40, Money.parse("123.4").minorUnits());
+        assertEquals(123_00, Money.parse("123").minorUnits());
+        assertEquals(-5, Money.parse("-0.05").minorUnits());
+        assertEquals(1_00, Money.parse("1.000").minorUnits());
+        assertEquals(150_00, Money.parse("1.5e2").minorUnits());
+    }
+
+    @Test
+    void parse_moreThanTwoFractionDigits_throwsArithmeticException() {
+        assertThrows(ArithmeticException.class, () -> Money.parse("0.001"));
+    }
+
+    @Test
+    void parse_notANumber_throwsNumberFormatException() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("-"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("12a"));
+    }
+
+    @Test
+    void arithmetic_overflow_throwsArithmeticException() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(Long.MAX_VALUE / 10));
+    }
+
+    @Test
+    void decimalConversion_roundTrips() {
+        Money money = Money.of(new BigDecimal("1000.50"));
+
+        assertEquals(1000_50, money.minorUnits());
+        assertEquals(new BigDecimal("1000.50"), money.toDecimal());
+        assertEquals("1000.50", money.toString());
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+        assertTrue(Money.ofMajor(1).isLessThan(Money.ofMajor(2)));
+    }
+
+    @Test
+    void json_keepsDecimalNumberShape() {
+        UUID from = UUID.randomUUID();
+        UUID to = UUID.randomUUID();
+        String json = "{\"fromCardId\":\"" + from + "\",\"toCardId\":\"" + to + "\",\"amount\":1000.5}";
+
+        TransferRequest request = jsonMapper.readValue(json, TransferRequest.class);
+
+        assertEquals(Money.ofMinor(1000_50), request.amount());
+        assertEquals("{\"fromCardId\":\"" + from + "\",\"toCardId\":\"" + to + "\",\"amount\":1000.50}",
+                jsonMapper.writeValueAsString(request));
+    }
+
+    @Test
+    void json_tooPreciseAmount_isRejected() {
+        String json = "{\"fromCardId\":null,\"toCardId\":null,\"amount\":0.001}";
+
+        assertThrows(DatabindException.class, () -> jsonMapper.readValue(json, TransferRequest.class));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.specification.CardSpecification;
+import com.example.bankcards.util.CursorCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Планы запросов, которые строит CardSpecification, на локальном PostgreSQL 16+ со схемой из Liquibase:
+ * при изменении спецификации тесты показывают, что запросы по-прежнему попадают в свои индексы.
+ * Данные создаются в транзакции теста и откатываются после него.
+ * Запросы объясняются через EXPLAIN (GENERIC_PLAN), поэтому значения параметров не нужны.
+ * <p>
+ * Запуск: POSTGRES_PLAN_TESTS=true mvn test -Dtest=CardQueryPlanTest (переменные БД из .env.example)
+ */
+@SpringBootTest(properties = {
+        "app.encryption.secret-key=edhCGwPguciHN8k+JyQHVrS/Stytke62CrSf0ED/MPc=",
+        "app.jwt.secret=Khu1tdIYdKNeBkMo+v4rUArFH9ArcBLz/F5CtERDHPk=",
+        "app.jwt.expiration=86400000",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.use_sql_comments=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.example.bankcards.repository.SqlCapture"
+})
+@ActiveProfiles("dev")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "POSTGRES_PLAN_TESTS", matches = "true")
+class CardQueryPlanTest {
+
+    private static final int OWNERS = 200;
+    private static final int CARDS = 20_000;
+    private static final Pattern PARAMETER = Pattern.compile("\\?");
+    private static final Pageable NEWEST_FIRST = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID ownerId;
+
+    @BeforeEach
+    void seed() {
+        String domain = "@plan-" + UUID.randomUUID() + ".local";
+        jdbcTemplate.update("""
+                INSERT INTO users (id, username, email, password, role)
+                SELECT gen_random_uuid(), 'plan-' || substr(md5(random()::text), 1, 16) || '-' || g,
+                       'user' || g || ?, '-', 'USER'
+                FROM generate_series(1, ?) g
+                """, domain, OWNERS);
+        jdbcTemplate.update("""
+                WITH owners AS (SELECT array_agg(id) AS ids FROM users WHERE email LIKE '%' || ?)
+                INSERT INTO cards (id, encrypted_number, masked_number, owner_id, holder_name, expiry_date,
+                                   status, balance, created_at, updated_at, deleted_at, version)
+                SELECT gen_random_uuid(), md5(random()::text) || g, '**** **** **** 0000', owners.ids[1 + g % ?],
+                       'HOLDER ' || upper(md5(g::text)), DATE '2030-01-01',
+                       CASE WHEN g % 10 = 0 THEN 'BLOCKED' ELSE 'ACTIVE' END, 100,
+                       TIMESTAMP '2026-01-01' + g * INTERVAL '1 minute', CURRENT_TIMESTAMP,
+                       CASE WHEN g % 20 = 0 THEN CURRENT_TIMESTAMP END, 0
+                FROM generate_series(1, ?) g, owners
+                """, domain, OWNERS, CARDS);
+        ownerId = jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE email LIKE '%' || ? LIMIT 1", UUID.class, domain);
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE cards");
+        SqlCapture.clear();
+    }
+
+    @Test
+    void holderNameSearch_switchesFromSeqScanToTrigramIndex() {
+        cardRepository.findResponses(CardSpecification.byFilterAdmin(null, null, "a1b2"), PageRequest.of(0, 20));
+        String sql = SqlCapture.firstCardsSelect();
+
+        assertUsesIndex(sql, "idx_cards_holder_name_trgm");
+
+        jdbcTemplate.execute("DROP INDEX idx_cards_holder_name_trgm");
+        String withoutIndex = explain(sql);
+        assertTrue(withoutIndex.contains("Seq Scan on cards"), withoutIndex);
+    }
+
+    @Test
+    void ownerListing_usesPartialOwnerIndex() {
+        cardRepository.findResponses(CardSpecification.byFilter(ownerId, null, null), NEWEST_FIRST);
+        String sql = SqlCapture.firstCardsSelect();
+
+        assertTrue(sql.contains("deleted_at is null"), sql);
+        assertUsesIndex(sql, "idx_cards_owner_active_created_at_id");
+    }
+
+    @Test
+    void ownerListingByStatus_usesPartialOwnerStatusIndex() {
+        cardRepository.findResponses(CardSpecification.byFilter(ownerId, CardStatus.ACTIVE, null), NEWEST_FIRST);
+        String sql = SqlCapture.firstCardsSelect();
+
+        assertTrue(sql.contains("deleted_at is null"), sql);
+        assertUsesIndex(sql, "idx_cards_owner_status_active_created_at_id");
+    }
+
+    @Test
+    void ownerCursorPage_usesPartialOwnerIndex() {
+        cardRepository.findResponsesBefore(CardSpecification.byFilter(ownerId, null, null),
+                CursorCodec.FIRST_PAGE.createdAt(), CursorCodec.FIRST_PAGE.id(), Limit.of(21));
+        String sql = SqlCapture.firstCardsSelect();
+
+        assertUsesIndex(sql, "idx_cards_owner_active_created_at_id");
+    }
+
+    private void assertUsesIndex(String sql, String indexName) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(indexName), plan);
+        assertFalse(plan.contains("Seq Scan on cards"), plan);
+    }
+
+    private String explain(String sql) {
+        AtomicInteger index = new AtomicInteger();
+        String numbered = PARAMETER.matcher(sql).replaceAll(match -> "\\$" + index.incrementAndGet());
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered, String.class));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Запоминает SQL, который Hibernate отправляет в базу, чтобы тесты могли получить его план
+ */
+public class SqlCapture implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    /**
+     * Первый выполненный запрос к таблице cards после последнего {@link #clear()}
+     */
+    public static String firstCardsSelect() {
+        return STATEMENTS.stream()
+                .filter(sql -> sql.startsWith("select") && sql.contains(" from cards "))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Запрос к cards не выполнялся"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.security.Argon2Calibrator.Argon2Parameters;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+
+import java.time.Duration;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Argon2CalibratorTest {
+
+    /**
+     * Время хеша пропорционально памяти и итерациям: 16 МиБ и 3 итерации занимают 30 мс
+     */
+    private final ToLongFunction<Argon2Parameters> linearCost =
+            p -> Duration.ofMillis(30).toNanos() * p.memoryKib() / 16384 * p.iterations() / 3;
+
+    private Argon2Parameters calibrate(long targetMs) {
+        return Argon2Calibrator.calibrate(Duration.ofMillis(targetMs), 16384, 65536, 3, 10, linearCost);
+    }
+
+    @Test
+    void fastHardware_growsMemoryToCapThenIterations() {
+        Argon2Parameters parameters = calibrate(250);
+
+        assertEquals(65536, parameters.memoryKib());
+        assertEquals(6, parameters.iterations());
+    }
+
+    @Test
+    void smallBudget_growsMemoryOnly() {
+        Argon2Parameters parameters = calibrate(70);
+
+        assertEquals(32768, parameters.memoryKib());
+        assertEquals(3, parameters.iterations());
+    }
+
+    @Test
+    void slowHardware_staysAtFloors() {
+        Argon2Parameters parameters = calibrate(10);
+
+        assertEquals(16384, parameters.memoryKib());
+        assertEquals(3, parameters.iterations());
+    }
+
+    @Test
+    void hugeBudget_cappedAtMaxIterations() {
+        Argon2Parameters parameters = calibrate(10_000);
+
+        assertEquals(65536, parameters.memoryKib());
+        assertEquals(10, parameters.iterations());
+    }
+
+    @Test
+    void weakerHash_needsUpgrade() {
+        String weak = new Argon2PasswordEncoder(16, 32, 1, 1024, 1).encode("secret");
+        Argon2PasswordEncoder calibrated = new Argon2Parameters(2048, 2).encoder();
+
+        assertTrue(calibrated.matches("secret", weak));
+        assertTrue(calibrated.upgradeEncoding(weak));
+        assertFalse(calibrated.upgradeEncoding(calibrated.encode("secret")));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.security.Argon2Calibrator.Argon2Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class Argon2ParameterStoreTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private Argon2ParameterStore store;
+
+    private final AtomicInteger calibrations = new AtomicInteger();
+
+    private Argon2Parameters calibrate() {
+        calibrations.incrementAndGet();
+        return new Argon2Parameters(65536, 4);
+    }
+
+    @Test
+    void stored_usedWithoutCalibration() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class)))
+                .thenReturn(List.of(new Argon2Parameters(32768, 5)));
+
+        Argon2Parameters parameters = store.loadOrCalibrate(this::calibrate);
+
+        assertEquals(new Argon2Parameters(32768, 5), parameters);
+        assertEquals(0, calibrations.get());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void missing_calibratesAndStores() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new Argon2Parameters(65536, 4)));
+
+        Argon2Parameters parameters = store.loadOrCalibrate(this::calibrate);
+
+        assertEquals(new Argon2Parameters(65536, 4), parameters);
+        assertEquals(1, calibrations.get());
+        verify(jdbcTemplate).update(startsWith("INSERT INTO password_hash_parameters"), eq(65536), eq(4), any());
+    }
+
+    @Test
+    void storedConcurrentlyByOtherNode_usesTheirs() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class)))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new Argon2Parameters(32768, 3)));
+
+        Argon2Parameters parameters = store.loadOrCalibrate(this::calibrate);
+
+        assertEquals(new Argon2Parameters(32768, 3), parameters);
+    }
+}
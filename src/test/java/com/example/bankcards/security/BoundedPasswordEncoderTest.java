@@ -0,0 +1,136 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    /**
+     * Пул с заранее запущенными потоками ставит в очередь каждую задачу, поэтому второе срабатывание -
+     * постановка задачи, ожидающей за первой
+     */
+    private final CountDownLatch queued = new CountDownLatch(2);
+    private final AtomicLong clock = new AtomicLong();
+    private BoundedPasswordEncoder encoder;
+
+    /**
+     * Очередь на одну задачу, которая сообщает о постановке задачи в очередь
+     */
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(1) {
+        @Override
+        public boolean offer(Runnable task) {
+            boolean accepted = super.offer(task);
+            if (accepted) {
+                queued.countDown();
+            }
+            return accepted;
+        }
+    };
+
+    /**
+     * Кодировщик, который держит поток пула, пока тест не отпустит release
+     */
+    private final PasswordEncoder blocking = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.shutdown();
+    }
+
+    private double rejected() {
+        return meterRegistry.get("bank.password.hash.rejected").counter().count();
+    }
+
+    @Test
+    void encodeAndMatches_runOnPoolAndRecordMetrics() {
+        release.countDown();
+        encoder = new BoundedPasswordEncoder(blocking, 1024, 1, 1, Duration.ofSeconds(1), meterRegistry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("other", hash));
+        assertEquals(1, meterRegistry.get("bank.password.hash.duration").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("bank.password.hash.duration").tag("operation", "matches").timer().count());
+        assertEquals(3, meterRegistry.get("bank.password.hash.queue.wait").timer().count());
+    }
+
+    private BoundedPasswordEncoder encoderWithTestQueue(Duration maxQueueWait) {
+        return new BoundedPasswordEncoder(blocking, 1024, 1, queue, maxQueueWait, meterRegistry, clock::get);
+    }
+
+    @Test
+    void queueFull_rejectedImmediately() throws Exception {
+        encoder = encoderWithTestQueue(Duration.ofSeconds(10));
+        CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture.runAsync(() -> encoder.encode("queued"));
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+
+        assertThrows(TooManyRequestsException.class, () -> encoder.encode("third"));
+        assertEquals(1, rejected());
+        assertEquals(1, meterRegistry.get("bank.password.hash.queue.depth").gauge().value());
+    }
+
+    @Test
+    void queuedLongerThanMaxWait_rejectedWithoutHashing() throws Exception {
+        encoder = encoderWithTestQueue(Duration.ofMillis(200));
+        CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> encoder.matches("x", "hash:x") + "");
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        clock.addAndGet(Duration.ofMillis(201).toNanos());
+        release.countDown();
+
+        Exception e = assertThrows(Exception.class, waiting::join);
+        assertTrue(e.getCause() instanceof TooManyRequestsException);
+        assertEquals(1, rejected());
+        assertEquals(0, meterRegistry.get("bank.password.hash.duration").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void inflightMemory_countsRunningHashes() throws Exception {
+        encoder = new BoundedPasswordEncoder(blocking, 16 * 1024 * 1024, 2, 1, Duration.ofSeconds(10), meterRegistry);
+        CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(16 * 1024 * 1024, meterRegistry.get("bank.password.hash.memory.inflight").gauge().value());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.enums.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtAuthenticationFilterTest {
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    @Mock
+    private TokenRevocationList tokenRevocationList;
+
+    private final UUID userId = UUID.randomUUID();
+    private final JwtClaims claims =
+            new JwtClaims(userId, "ivan", UserRole.ADMIN, 2, Instant.now().plusSeconds(60));
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private Authentication filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/cards/myCards");
+        request.addHeader("Authorization", "Bearer token");
+        new JwtAuthenticationFilter(jwtUtil, tokenRevocationList)
+                .doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void validToken_principalBuiltFromClaims() throws Exception {
+        when(jwtUtil.validate("token")).thenReturn(Optional.of(claims));
+
+        Authentication authentication = filter();
+
+        assertNotNull(authentication);
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        assertEquals(userId, principal.getId());
+        assertEquals("ivan", principal.getUsername());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void revokedToken_notAuthenticated() throws Exception {
+        when(jwtUtil.validate("token")).thenReturn(Optional.of(claims));
+        when(tokenRevocationList.isRevoked(userId, 2)).thenReturn(true);
+
+        assertNull(filter());
+    }
+
+    @Test
+    void invalidToken_notAuthenticated() throws Exception {
+        when(jwtUtil.validate("token")).thenReturn(Optional.empty());
+
+        assertNull(filter());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.UserRole;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "Khu1tdIYdKNeBkMo+v4rUArFH9ArcBLz/F5CtERDHPk=";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000, meterRegistry, true, 100);
+    private final UUID userId = UUID.randomUUID();
+    private final UserPrincipal user = new UserPrincipal(User.builder()
+            .id(userId)
+            .username("ivan")
+            .password("-")
+            .role(UserRole.ADMIN)
+            .enabled(true)
+            .tokenVersion(3)
+            .build());
+
+    private double cacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "jwt").tag("result", "hit").functionCounter().count();
+    }
+
+    @Test
+    void validate_generatedToken_returnsClaims() {
+        Optional<JwtClaims> claims = jwtUtil.validate(jwtUtil.generateToken(user));
+
+        assertTrue(claims.isPresent());
+        assertEquals("ivan", claims.get().username());
+        assertEquals(userId, claims.get().userId());
+        assertEquals(UserRole.ADMIN, claims.get().role());
+        assertEquals(3, claims.get().tokenVersion());
+    }
+
+    @Test
+    void validate_tokenWithoutUserClaims_returnsEmpty() {
+        String token = Jwts.builder()
+                .subject("ivan")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), Jwts.SIG.HS256)
+                .compact();
+
+        assertTrue(jwtUtil.validate(token).isEmpty());
+    }
+
+    @Test
+    void validate_sameTokenTwice_secondCallServedFromCache() {
+        String token = jwtUtil.generateToken(user);
+
+        jwtUtil.validate(token);
+        jwtUtil.validate(token);
+
+        assertEquals(1.0, cacheHits());
+    }
+
+    @Test
+    void validate_tamperedSignature_returnsEmpty() {
+        String token = jwtUtil.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertTrue(jwtUtil.validate(tampered).isEmpty());
+        assertTrue(jwtUtil.validate("not-a-jwt").isEmpty());
+    }
+
+    @Test
+    void validate_expiredToken_returnsEmpty() {
+        String expired = Jwts.builder()
+                .subject("ivan")
+                .claim(JwtUtil.USER_ID_CLAIM, userId.toString())
+                .claim(JwtUtil.ROLE_CLAIM, "USER")
+                .claim(JwtUtil.TOKEN_VERSION_CLAIM, 0)
+                .issuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), Jwts.SIG.HS256)
+                .compact();
+
+        assertTrue(jwtUtil.validate(expired).isEmpty());
+    }
+
+    @Test
+    void validate_tokenWithoutExpiration_returnsEmpty() {
+        String token = Jwts.builder()
+                .subject("ivan")
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), Jwts.SIG.HS256)
+                .compact();
+
+        assertTrue(jwtUtil.validate(token).isEmpty());
+    }
+
+    @Test
+    void validate_cacheDisabled_stillValidates() {
+        JwtUtil uncached = new JwtUtil(SECRET, 60_000, new SimpleMeterRegistry(), false, 100);
+        String token = uncached.generateToken(user);
+
+        assertEquals("ivan", uncached.validate(token).orElseThrow().username());
+        assertEquals("ivan", uncached.validate(token).orElseThrow().username());
+    }
+}
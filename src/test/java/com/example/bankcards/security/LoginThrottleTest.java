@@ -0,0 +1,165 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanos = new AtomicLong(42);
+
+    /**
+     * По имени: 3 попытки подряд и 6 в минуту, по IP: 10 подряд и 60 в минуту
+     */
+    private LoginThrottle throttle(boolean enabled) {
+        return new LoginThrottle(meterRegistry, enabled, 1024, 3, 6, 10, 60, nanos::get);
+    }
+
+    private double throttled(String key) {
+        return meterRegistry.get("bank.auth.login.throttled").tag("key", key).counter().count();
+    }
+
+    @Test
+    void username_burstThenRejected() {
+        LoginThrottle throttle = throttle(true);
+
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> throttle.acquire("ivan", "10.0.0.1"));
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> throttle.acquire("ivan", "10.0.0.2"));
+        assertEquals(1, throttled("username"));
+    }
+
+    @Test
+    void username_successfulLoginsRefunded() {
+        LoginThrottle throttle = throttle(true);
+
+        for (int i = 0; i < 50; i++) {
+            int ip = i;
+            assertDoesNotThrow(() -> throttle.acquire("ivan", "10.0.0." + ip));
+            throttle.recordSuccess("ivan");
+        }
+    }
+
+    @Test
+    void username_refillsOverTime() {
+        LoginThrottle throttle = throttle(true);
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("ivan", "10.0.0.1");
+        }
+
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertDoesNotThrow(() -> throttle.acquire("ivan", "10.0.0.1"));
+        assertThrows(TooManyRequestsException.class, () -> throttle.acquire("ivan", "10.0.0.1"));
+    }
+
+    @Test
+    void username_refundDoesNotBankAttempts() {
+        LoginThrottle throttle = throttle(true);
+        for (int i = 0; i < 10; i++) {
+            throttle.recordSuccess("ivan");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> throttle.acquire("ivan", "10.0.0.1"));
+        }
+        assertThrows(TooManyRequestsException.class, () -> throttle.acquire("ivan", "10.0.0.1"));
+    }
+
+    @Test
+    void usernameRejection_doesNotConsumeIpAttempt() {
+        LoginThrottle throttle = throttle(true);
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("ivan", "10.0.0.2");
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThrows(TooManyRequestsException.class, () -> throttle.acquire("ivan", "10.0.0.1"));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            int user = i;
+            assertDoesNotThrow(() -> throttle.acquire("user" + user, "10.0.0.1"));
+        }
+        assertEquals(0, throttled("ip"));
+    }
+
+    @Test
+    void ipRejection_doesNotConsumeUsernameAttempt() {
+        LoginThrottle throttle = throttle(true);
+        for (int i = 0; i < 10; i++) {
+            throttle.acquire("user" + i, "10.0.0.1");
+        }
+
+        for (int i = 0; i < 5; i++) {
+            assertThrows(TooManyRequestsException.class, () -> throttle.acquire("ivan", "10.0.0.1"));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> throttle.acquire("ivan", "10.0.0.2"));
+        }
+    }
+
+    @Test
+    void ip_limitsAcrossUsernames() {
+        LoginThrottle throttle = throttle(true);
+
+        for (int i = 0; i < 10; i++) {
+            int user = i;
+            assertDoesNotThrow(() -> throttle.acquire("user" + user, "10.0.0.1"));
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> throttle.acquire("other", "10.0.0.1"));
+        assertEquals(1, throttled("ip"));
+        assertDoesNotThrow(() -> throttle.acquire("other", "10.0.0.2"));
+    }
+
+    @Test
+    void disabled_neverRejects() {
+        LoginThrottle throttle = throttle(false);
+
+        for (int i = 0; i < 100; i++) {
+            assertDoesNotThrow(() -> throttle.acquire("ivan", "10.0.0.1"));
+        }
+    }
+
+    @Test
+    void concurrentAttempts_allowExactlyBurst() throws Exception {
+        LoginThrottle throttle = throttle(true);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 64; i++) {
+                int user = i;
+                attempts.add(executor.submit(() -> {
+                    try {
+                        throttle.acquire("user" + user, "10.0.0.1");
+                        return true;
+                    } catch (TooManyRequestsException e) {
+                        return false;
+                    }
+                }));
+            }
+        }
+
+        long allowed = 0;
+        for (Future<Boolean> attempt : attempts) {
+            allowed += attempt.get() ? 1 : 0;
+        }
+        assertEquals(10, allowed);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class SipHashTest {
+
+    /**
+     * Ключ 00 01 .. 0f из эталонной реализации SipHash-2-4
+     */
+    private final SipHash reference = new SipHash(0x0706050403020100L, 0x0f0e0d0c0b0a0908L);
+
+    private static byte[] sequence(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    @Test
+    void matchesReferenceVectors() {
+        assertEquals(0x726fdb47dd0e0e31L, reference.hash(sequence(0)));
+        assertEquals(0x74f839c593dc67fdL, reference.hash(sequence(1)));
+        assertEquals(0x93f5f5799a932462L, reference.hash(sequence(8)));
+        assertEquals(0xa129ca6149be45e5L, reference.hash(sequence(15)));
+    }
+
+    @Test
+    void hashCodeCollisions_hashDifferently() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        assertNotEquals(reference.hash("Aa"), reference.hash("BB"));
+    }
+}
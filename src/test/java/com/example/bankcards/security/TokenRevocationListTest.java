@@ -0,0 +1,71 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void revoke_rejectsOnlyOlderVersionsOfThatUser() {
+        TokenRevocationList revocations = new TokenRevocationList(jdbcTemplate, 60_000);
+
+        revocations.revoke(userId, 2);
+
+        assertTrue(revocations.isRevoked(userId, 1));
+        assertFalse(revocations.isRevoked(userId, 2));
+        assertFalse(revocations.isRevoked(UUID.randomUUID(), 0));
+    }
+
+    @Test
+    void revoke_olderVersionAfterNewer_keepsNewer() {
+        TokenRevocationList revocations = new TokenRevocationList(jdbcTemplate, 60_000);
+
+        revocations.revoke(userId, 3);
+        revocations.revoke(userId, 1);
+
+        assertTrue(revocations.isRevoked(userId, 2));
+    }
+
+    @Test
+    void refresh_loadsRevocationsFromOtherNodes() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject(1, UUID.class)).thenReturn(userId);
+        when(rs.getInt(2)).thenReturn(1);
+        when(rs.getTimestamp(3)).thenReturn(Timestamp.from(Instant.now()));
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class));
+        TokenRevocationList revocations = new TokenRevocationList(jdbcTemplate, 60_000);
+
+        revocations.refresh();
+
+        assertEquals(1, revocations.size());
+        assertTrue(revocations.isRevoked(userId, 0));
+        assertFalse(revocations.isRevoked(userId, 1));
+    }
+}
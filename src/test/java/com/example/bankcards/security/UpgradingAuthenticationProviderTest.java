@@ -0,0 +1,81 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.UserRole;
+import com.example.bankcards.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UpgradingAuthenticationProviderTest {
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private UpgradingAuthenticationProvider provider;
+    private UserPrincipal principal;
+
+    @BeforeEach
+    void setUp() {
+        provider = new UpgradingAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        principal = new UserPrincipal(User.builder()
+                .id(UUID.randomUUID())
+                .username("ivan")
+                .password("{argon2}weak")
+                .role(UserRole.USER)
+                .enabled(true)
+                .build());
+        when(userDetailsService.loadUserByUsername("ivan")).thenReturn(principal);
+        when(passwordEncoder.matches("secret", "{argon2}weak")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("{argon2}weak")).thenReturn(true);
+    }
+
+    private Authentication login() {
+        return provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("ivan", "secret"));
+    }
+
+    @Test
+    void weakHash_upgradedThroughPasswordService() {
+        // первый encode - хеш для защиты от перебора имён, второй - пересчёт пароля
+        when(passwordEncoder.encode(anyString())).thenReturn("{argon2}dummy", "{argon2}strong");
+        when(userDetailsService.updatePassword(principal, "{argon2}strong")).thenReturn(principal);
+
+        Authentication authentication = login();
+
+        assertTrue(authentication.isAuthenticated());
+        verify(userDetailsService).updatePassword(principal, "{argon2}strong");
+    }
+
+    @Test
+    void hashingOverloaded_skipsUpgradeAndAuthenticates() {
+        when(passwordEncoder.encode(anyString()))
+                .thenReturn("{argon2}dummy")
+                .thenThrow(new TooManyRequestsException("Сервис перегружен"));
+
+        Authentication authentication = login();
+
+        assertTrue(authentication.isAuthenticated());
+        assertSame(principal, authentication.getPrincipal());
+        verify(userDetailsService, never()).updatePassword(any(), any());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.UserRole;
+import com.example.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserDetailsServiceImpl userDetailsService;
+
+    private final User user = User.builder()
+            .id(UUID.randomUUID())
+            .username("ivan")
+            .password("{argon2}old")
+            .role(UserRole.USER)
+            .enabled(true)
+            .build();
+
+    @Test
+    void updatePassword_storesUpgradedHash() {
+        when(userRepository.findByUsername("ivan")).thenReturn(Optional.of(user));
+
+        UserDetails updated = userDetailsService.updatePassword(new UserPrincipal(user), "{argon2}new");
+
+        assertEquals("{argon2}new", user.getPassword());
+        assertEquals("{argon2}new", updated.getPassword());
+    }
+
+    @Test
+    void updatePassword_unknownUser_throws() {
+        when(userRepository.findByUsername("ivan")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class,
+                () -> userDetailsService.updatePassword(new UserPrincipal(user), "{argon2}new"));
+    }
+
+    @Test
+    void loadUserByUsername_returnsPrincipalWithStoredHash() {
+        when(userRepository.findByUsername("ivan")).thenReturn(Optional.of(user));
+
+        UserDetails loaded = userDetailsService.loadUserByUsername("ivan");
+
+        assertEquals("ivan", loaded.getUsername());
+        assertEquals("{argon2}old", loaded.getPassword());
+    }
+
+    @Test
+    void loadUserByUsername_unknownUser_throws() {
+        when(userRepository.findByUsername("ivan")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ivan"));
+    }
+}
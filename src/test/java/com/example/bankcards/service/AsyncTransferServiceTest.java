@@ -0,0 +1,158 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AsyncTransferStatusResponse;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.enums.AsyncTransferStatus;
+import com.example.bankcards.exception.AccessDeniedException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.money.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncTransferServiceTest {
+
+    @Mock
+    private TransferEngine transferEngine;
+
+    private final UUID userId = UUID.randomUUID();
+    private final TransferRequest request =
+            new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(10));
+
+    private AsyncTransferService asyncTransferService;
+
+    @AfterEach
+    void tearDown() {
+        asyncTransferService.shutdown();
+    }
+
+    private AsyncTransferService service(int queueCapacity) {
+        return service(queueCapacity, 100);
+    }
+
+    private AsyncTransferService service(int queueCapacity, int maxCompleted) {
+        asyncTransferService = new AsyncTransferService(transferEngine, new SimpleMeterRegistry(),
+                1, queueCapacity, maxCompleted, Duration.ofMinutes(5));
+        return asyncTransferService;
+    }
+
+    @Test
+    void submit_success_completesTransfer() {
+        AsyncTransferService service = service(10);
+        TransferResponse response = TransferResponse.builder().id(UUID.randomUUID()).build();
+        when(transferEngine.transfer(request, userId, null)).thenReturn(response);
+
+        AsyncTransferStatusResponse submitted = service.submit(request, userId, null);
+        assertEquals(AsyncTransferStatus.PENDING, submitted.status());
+
+        AsyncTransferStatusResponse done = awaitCompletion(service, submitted.id());
+        assertEquals(AsyncTransferStatus.COMPLETED, done.status());
+        assertSame(response, done.transfer());
+    }
+
+    @Test
+    void submit_domainError_reportsReason() {
+        AsyncTransferService service = service(10);
+        when(transferEngine.transfer(request, userId, null))
+                .thenThrow(new InsufficientFundsException("Недостаточно средств"));
+
+        AsyncTransferStatusResponse done = awaitCompletion(service, service.submit(request, userId, null).id());
+
+        assertEquals(AsyncTransferStatus.FAILED, done.status());
+        assertEquals("Недостаточно средств", done.error());
+    }
+
+    @Test
+    void submit_queueFull_throwsTooManyRequests() throws Exception {
+        AsyncTransferService service = service(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transferEngine.transfer(eq(request), eq(userId), isNull())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return TransferResponse.builder().build();
+        });
+
+        service.submit(request, userId, null);
+        started.await(5, TimeUnit.SECONDS);
+        service.submit(request, userId, null);
+
+        assertThrows(TooManyRequestsException.class, () -> service.submit(request, userId, null));
+        release.countDown();
+    }
+
+    @Test
+    void completedStatusesFull_newSubmissionStaysVisible() throws Exception {
+        AsyncTransferService service = service(10, 2);
+        when(transferEngine.transfer(eq(request), eq(userId), isNull()))
+                .thenReturn(TransferResponse.builder().build());
+        for (int i = 0; i < 5; i++) {
+            service.submit(request, userId, null);
+        }
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransferRequest slow = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(1));
+        when(transferEngine.transfer(eq(slow), eq(userId), isNull())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return TransferResponse.builder().build();
+        });
+        UUID running = service.submit(slow, userId, null).id();
+        UUID queued = service.submit(slow, userId, null).id();
+        // один поток выполняет переводы по порядку: к старту медленного все пять уже завершены
+        started.await(5, TimeUnit.SECONDS);
+
+        assertEquals(AsyncTransferStatus.PENDING, service.getStatus(running, userId).status());
+        assertEquals(AsyncTransferStatus.PENDING, service.getStatus(queued, userId).status());
+
+        release.countDown();
+    }
+
+    @Test
+    void getStatus_otherUser_throwsAccessDenied() {
+        AsyncTransferService service = service(10);
+        when(transferEngine.transfer(any(), any(), any())).thenReturn(TransferResponse.builder().build());
+        UUID id = service.submit(request, userId, null).id();
+        awaitCompletion(service, id);
+
+        assertThrows(AccessDeniedException.class, () -> service.getStatus(id, UUID.randomUUID()));
+    }
+
+    @Test
+    void getStatus_unknownId_throwsNotFound() {
+        AsyncTransferService service = service(10);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.getStatus(UUID.randomUUID(), userId));
+    }
+
+    private AsyncTransferStatusResponse awaitCompletion(AsyncTransferService service, UUID id) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        AsyncTransferStatusResponse status = service.getStatus(id, userId);
+        while (status.status() == AsyncTransferStatus.PENDING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            status = service.getStatus(id, userId);
+        }
+        return status;
+    }
+}
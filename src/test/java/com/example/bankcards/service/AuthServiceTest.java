@@ -7,8 +7,11 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.enums.UserRole;
 import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.exception.TooManyRequestsException;
 import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.LoginThrottle;
 import com.example.bankcards.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,9 +23,21 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -43,6 +58,9 @@ class AuthServiceTest {
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private LoginThrottle loginThrottle;
+
     @InjectMocks
     private AuthService authService;
 
@@ -69,11 +87,12 @@ class AuthServiceTest {
         when(authenticationManager.authenticate(any())).thenReturn(auth);
         when(jwtUtil.generateToken(userPrincipal)).thenReturn("jwt-token");
 
-        AuthResponse response = authService.login(new LoginRequest("Ivan Ivanov", "pass"));
+        AuthResponse response = authService.login(new LoginRequest("Ivan Ivanov", "pass"), "10.0.0.1");
 
         assertEquals("jwt-token", response.token());
         assertEquals("Ivan Ivanov", response.username());
         assertEquals("ROLE_USER", response.role());
+        verify(loginThrottle).recordSuccess("Ivan Ivanov");
     }
 
     @Test
@@ -82,7 +101,64 @@ class AuthServiceTest {
                 .thenThrow(new BadCredentialsException("Bad credentials"));
 
         assertThrows(BadCredentialsException.class,
-                () -> authService.login(new LoginRequest("Ivan Ivanov", "wrong")));
+                () -> authService.login(new LoginRequest("Ivan Ivanov", "wrong"), "10.0.0.1"));
+        verify(loginThrottle, never()).recordSuccess(any());
+    }
+
+    @Test
+    void login_throttled_rejectedBeforeAuthentication() {
+        doThrow(new TooManyRequestsException("Слишком много попыток входа"))
+                .when(loginThrottle).acquire("Ivan Ivanov", "10.0.0.1");
+
+        assertThrows(TooManyRequestsException.class,
+                () -> authService.login(new LoginRequest("Ivan Ivanov", "pass"), "10.0.0.1"));
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    void login_parallelWrongPasswords_onlyBurstReachesPasswordCheck() throws Exception {
+        int burst = 3;
+        int attempts = 16;
+        LoginThrottle throttle = new LoginThrottle(new SimpleMeterRegistry(), true, 1024, burst, 1, 100, 100);
+        AuthService service = new AuthService(userRepository, passwordEncoder, authenticationManager, jwtUtil, throttle);
+        AtomicInteger checked = new AtomicInteger();
+        CountDownLatch rejected = new CountDownLatch(attempts - burst);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            checked.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            throw new BadCredentialsException("Bad credentials");
+        });
+
+        List<Future<?>> logins = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(attempts)) {
+            for (int i = 0; i < attempts; i++) {
+                String ip = "10.0.0." + i;
+                logins.add(executor.submit(() -> {
+                    try {
+                        service.login(new LoginRequest("Ivan Ivanov", "wrong"), ip);
+                    } catch (TooManyRequestsException e) {
+                        rejected.countDown();
+                    }
+                    return null;
+                }));
+            }
+            rejected.await(5, TimeUnit.SECONDS);
+            release.countDown();
+        }
+
+        assertEquals(burst, checked.get());
+        assertEquals(0, rejected.getCount());
+        int wrongPassword = 0;
+        for (Future<?> login : logins) {
+            try {
+                login.get();
+            } catch (ExecutionException e) {
+                assertInstanceOf(BadCredentialsException.class, e.getCause());
+                wrongPassword++;
+            }
+        }
+        assertEquals(burst, wrongPassword);
     }
 
     @Test
@@ -0,0 +1,173 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BulkCardImportError;
+import com.example.bankcards.dto.BulkCardImportResponse;
+import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.util.CardEncryptionUtil;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardBulkImportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private CardStatsService cardStatsService;
+
+    private final CardEncryptionUtil cardEncryptionUtil =
+            new CardEncryptionUtil("edhCGwPguciHN8k+JyQHVrS/Stytke62CrSf0ED/MPc=", "");
+
+    /**
+     * Позиции времени выпуска и массива id среди аргументов queryForList вставки карт
+     */
+    private static final int CARDS_CREATED_AT_ARGUMENT = 3;
+    private static final int CARD_IDS_ARGUMENT = 4;
+
+    private final UUID ownerId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID unknownOwnerId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    private CardBulkImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new CardBulkImportService(jdbcTemplate, transactionManager, cardEncryptionUtil,
+                cardStatsService, Validation.buildDefaultValidatorFactory().getValidator(), 2, 10);
+    }
+
+    private BulkCardImportResponse importCsv(String csv) throws Exception {
+        return importService.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCsv_insertsValidRowsAndReportsErrorsByLine() throws Exception {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM users"), eq(UUID.class), any(Object.class)))
+                .thenReturn(List.of(ownerId));
+        when(jdbcTemplate.queryForList(startsWith("SELECT number_hash"), eq(String.class), any(Object.class)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("INSERT INTO cards"), eq(UUID.class), any(Object[].class)))
+                .thenAnswer(invocation -> List.of(invocation.<UUID[]>getArgument(CARD_IDS_ARGUMENT)));
+
+        BulkCardImportResponse response = importCsv("""
+                ownerId,cardNumber,holderName,expiryDate,initialBalance
+                %1$s,1111222233334444,IVAN IVANOV,2030-12-31,100.00
+                %1$s,1111222233334444,IVAN IVANOV,2030-12-31,100.00
+                %1$s,12345,IVAN IVANOV,2030-12-31,100.00
+
+                %2$s,5555666677778888,"PETROV, PETR",2030-12-31,0
+                %1$s,9999000011112222,IVAN IVANOV,2030-12-31
+                %1$s,9999000011112222,"IVAN \"\"IVANOV\"\"",2030-12-31,15.5
+                """.formatted(ownerId, unknownOwnerId));
+
+        assertEquals(6, response.total());
+        assertEquals(2, response.created());
+        assertEquals(4, response.failed());
+        assertEquals(List.of(
+                new BulkCardImportError(3, "Карта с таким номером уже выпущена"),
+                new BulkCardImportError(4, "Номер карты должен содержать ровно 16 цифр (без пробелов)"),
+                new BulkCardImportError(6, "Пользователь с id: " + unknownOwnerId + " не найден"),
+                new BulkCardImportError(7, "Ожидается 5 колонок, получено 4")
+        ), response.errors());
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO ledger_entries"), any(Timestamp.class), any(UUID[].class));
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO ledger_heads"), any(Object.class));
+        verify(cardStatsService).cardsIssued(eq(CardStatus.ACTIVE), eq(1L), eq(10_000L), any());
+        verify(cardStatsService).cardsIssued(eq(CardStatus.ACTIVE), eq(1L), eq(1_550L), any());
+    }
+
+    @Test
+    void importCsv_numberIssuedConcurrently_reportedAsDuplicate() throws Exception {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM users"), eq(UUID.class), any(Object.class)))
+                .thenReturn(List.of(ownerId));
+        when(jdbcTemplate.queryForList(startsWith("SELECT number_hash"), eq(String.class), any(Object.class)))
+                .thenReturn(List.of());
+        AtomicReference<Timestamp> cardsCreatedAt = new AtomicReference<>();
+        // Второй номер выпущен параллельной загрузкой: ON CONFLICT DO NOTHING не возвращает его id
+        when(jdbcTemplate.queryForList(startsWith("INSERT INTO cards"), eq(UUID.class), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    cardsCreatedAt.set(invocation.getArgument(CARDS_CREATED_AT_ARGUMENT));
+                    return List.of(invocation.<UUID[]>getArgument(CARD_IDS_ARGUMENT)[0]);
+                });
+
+        BulkCardImportResponse response = importCsv("""
+                %1$s,1111222233334444,IVAN IVANOV,2030-12-31,100.00
+                %1$s,5555666677778888,IVAN IVANOV,2030-12-31,50.00
+                """.formatted(ownerId));
+
+        assertEquals(1, response.created());
+        assertEquals(List.of(new BulkCardImportError(2, "Карта с таким номером уже выпущена")), response.errors());
+        ArgumentCaptor<Timestamp> entriesCreatedAt = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO ledger_entries"), entriesCreatedAt.capture(), any(UUID[].class));
+        assertEquals(cardsCreatedAt.get(), entriesCreatedAt.getValue());
+        verify(cardStatsService).cardsIssued(CardStatus.ACTIVE, 1, 10_000L,
+                entriesCreatedAt.getValue().toLocalDateTime().toLocalDate());
+    }
+
+    @Test
+    void importCsv_errorsOverLimit_countedButNotListed() throws Exception {
+        importService = new CardBulkImportService(jdbcTemplate, transactionManager, cardEncryptionUtil,
+                cardStatsService, Validation.buildDefaultValidatorFactory().getValidator(), 2, 1);
+
+        BulkCardImportResponse response = importCsv("bad\nbad\nbad\n");
+
+        assertEquals(3, response.failed());
+        assertEquals(1, response.errors().size());
+    }
+
+    @Test
+    void parse_validRow_returnsRequest() {
+        CreateCardRequest request = importService.parse(ownerId + ",1111222233334444, IVAN IVANOV ,2030-12-31,10.50");
+
+        assertEquals(ownerId, request.ownerId());
+        assertEquals("IVAN IVANOV", request.holderName());
+        assertEquals(Money.ofMinor(1050), request.initialBalance());
+    }
+
+    @Test
+    void parse_invalidValues_throwsIllegalArgumentException() {
+        IllegalArgumentException owner = assertThrows(IllegalArgumentException.class,
+                () -> importService.parse("not-a-uuid,1111222233334444,IVAN,2030-12-31,0"));
+        IllegalArgumentException date = assertThrows(IllegalArgumentException.class,
+                () -> importService.parse(ownerId + ",1111222233334444,IVAN,31.12.2030,0"));
+        IllegalArgumentException balance = assertThrows(IllegalArgumentException.class,
+                () -> importService.parse(ownerId + ",1111222233334444,IVAN,2030-12-31,1.005"));
+
+        assertTrue(owner.getMessage().startsWith("Некорректный ID владельца"));
+        assertTrue(date.getMessage().startsWith("Некорректная дата"));
+        assertTrue(balance.getMessage().startsWith("Некорректный начальный баланс"));
+    }
+
+    @Test
+    void split_quotedValues() {
+        assertEquals(List.of("a", "PETROV, PETR", "say \"hi\"", ""),
+                CardBulkImportService.split("a,\"PETROV, PETR\",\"say \"\"hi\"\"\","));
+    }
+}
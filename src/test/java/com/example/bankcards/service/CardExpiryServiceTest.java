@@ -0,0 +1,112 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.enums.CardStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardExpiryServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private CardCache cardCache;
+    @Mock
+    private CardStatsService cardStatsService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LocalDate today = LocalDate.of(2026, 3, 1);
+
+    private CardExpiryService expiryService;
+
+    @BeforeEach
+    void setUp() {
+        expiryService = new CardExpiryService(jdbcTemplate, transactionManager, cardCache, cardStatsService,
+                meterRegistry, 2);
+    }
+
+    private record Expired(UUID id, CardStatus previous) {
+    }
+
+    /**
+     * Каждый вызов запроса возвращает следующую пачку строк (id, прежний статус)
+     */
+    private void stubChunks(List<List<Expired>> chunks) {
+        Deque<List<Expired>> remaining = new ArrayDeque<>(chunks);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Expired row : remaining.isEmpty() ? List.<Expired>of() : remaining.poll()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getObject(1, UUID.class)).thenReturn(row.id());
+                when(rs.getString(2)).thenReturn(row.previous().name());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(Date.valueOf(today)), eq(2));
+    }
+
+    @Test
+    void expireCards_fullChunk_continuesUntilPartialChunk() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        stubChunks(List.of(
+                List.of(new Expired(first, CardStatus.ACTIVE), new Expired(second, CardStatus.BLOCKED)),
+                List.of(new Expired(third, CardStatus.ACTIVE))));
+
+        assertEquals(3, expiryService.expireCards(today));
+
+        verify(jdbcTemplate, times(2))
+                .query(anyString(), any(RowCallbackHandler.class), eq(Date.valueOf(today)), eq(2));
+        verify(cardCache).evict(first);
+        verify(cardCache).evict(second);
+        verify(cardCache).evict(third);
+        verify(cardStatsService, times(2)).statusChanged(CardStatus.ACTIVE, CardStatus.EXPIRED, 1);
+        verify(cardStatsService).statusChanged(CardStatus.BLOCKED, CardStatus.EXPIRED, 1);
+        assertEquals(3.0, meterRegistry.get("bank.cards.expiry.expired").counter().count());
+        assertEquals(2.0, meterRegistry.get("bank.cards.expiry.chunks").counter().count());
+        assertEquals(1, meterRegistry.get("bank.cards.expiry.sweep").timer().count());
+    }
+
+    @Test
+    void expireCards_nothingExpired_runsSingleChunk() {
+        stubChunks(List.of());
+
+        assertEquals(0, expiryService.expireCards(today));
+
+        verify(jdbcTemplate, times(1))
+                .query(anyString(), any(RowCallbackHandler.class), eq(Date.valueOf(today)), eq(2));
+        verify(cardCache, never()).evict(any());
+        verify(cardStatsService, never()).statusChanged(any(CardStatus.class), any(), anyLong());
+        assertEquals(0.0, meterRegistry.get("bank.cards.expiry.expired").counter().count());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.service.CardNumberHashBackfillService.EncryptedCard;
+import com.example.bankcards.util.CardEncryptionUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberHashBackfillServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CardEncryptionUtil cardEncryptionUtil =
+            new CardEncryptionUtil("edhCGwPguciHN8k+JyQHVrS/Stytke62CrSf0ED/MPc=", "");
+
+    private final UUID firstId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID secondId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private final UUID thirdId = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    private CardNumberHashBackfillService backfillService;
+
+    @BeforeEach
+    void setUp() {
+        backfillService = new CardNumberHashBackfillService(jdbcTemplate, transactionManager, cardEncryptionUtil, 2);
+    }
+
+    private EncryptedCard card(UUID id, String number) {
+        return new EncryptedCard(id, cardEncryptionUtil.encrypt(number));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_fullBatch_continuesAfterLastId() {
+        doReturn(List.of(card(firstId, "1111222233334444"), card(secondId, "5555666677778888")))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(CardNumberHashBackfillService.MIN_ID), eq(2));
+        doReturn(List.of(card(thirdId, "9999000011112222")))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(secondId), eq(2));
+        doNothing().when(jdbcTemplate)
+                .query(startsWith("SELECT number_hash"), any(RowCallbackHandler.class), any(Object.class));
+
+        assertEquals(3, backfillService.backfill());
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), updates.capture());
+        assertArrayEquals(new Object[]{cardEncryptionUtil.hash("9999000011112222"), thirdId},
+                updates.getAllValues().get(1).getFirst());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), eq(thirdId), eq(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_duplicateNumbers_leftWithoutHashAndMarked() throws SQLException {
+        backfillService = new CardNumberHashBackfillService(jdbcTemplate, transactionManager, cardEncryptionUtil, 10);
+        UUID existingId = UUID.randomUUID();
+        doReturn(List.of(card(firstId, "1111222233334444"), card(secondId, "1111 2222 3333 4444"),
+                card(thirdId, "5555666677778888")))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(CardNumberHashBackfillService.MIN_ID), eq(10));
+        ResultSet existing = mock(ResultSet.class);
+        when(existing.getString(1)).thenReturn(cardEncryptionUtil.hash("5555666677778888"));
+        when(existing.getObject(2, UUID.class)).thenReturn(existingId);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(existing);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT number_hash"), any(RowCallbackHandler.class), any(Object.class));
+
+        assertEquals(1, backfillService.backfill());
+
+        ArgumentCaptor<List<Object[]>> hashes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE cards SET number_hash"), hashes.capture());
+        assertEquals(1, hashes.getValue().size());
+        assertArrayEquals(new Object[]{cardEncryptionUtil.hash("1111222233334444"), firstId},
+                hashes.getValue().getFirst());
+
+        ArgumentCaptor<List<Object[]>> duplicates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE cards SET duplicate_of"), duplicates.capture());
+        assertEquals(2, duplicates.getValue().size());
+        assertArrayEquals(new Object[]{firstId, secondId}, duplicates.getValue().get(0));
+        assertArrayEquals(new Object[]{existingId, thirdId}, duplicates.getValue().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_undecryptableNumber_markedFailedAndBatchContinues() {
+        backfillService = new CardNumberHashBackfillService(jdbcTemplate, transactionManager, cardEncryptionUtil, 10);
+        doReturn(List.of(new EncryptedCard(firstId, "не шифртекст"), card(secondId, "5555666677778888")))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(CardNumberHashBackfillService.MIN_ID), eq(10));
+        doNothing().when(jdbcTemplate)
+                .query(startsWith("SELECT number_hash"), any(RowCallbackHandler.class), any(Object.class));
+
+        assertEquals(1, backfillService.backfill());
+
+        ArgumentCaptor<List<Object[]>> hashes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE cards SET number_hash ="), hashes.capture());
+        assertArrayEquals(new Object[]{cardEncryptionUtil.hash("5555666677778888"), secondId},
+                hashes.getValue().getFirst());
+        ArgumentCaptor<List<Object[]>> failed = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE cards SET number_hash_failed_at"), failed.capture());
+        assertEquals(1, failed.getValue().size());
+        assertArrayEquals(new Object[]{firstId}, failed.getValue().getFirst());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfill_numberIssuedConcurrently_writesRowByRowAndMarksDuplicate() {
+        backfillService = new CardNumberHashBackfillService(jdbcTemplate, transactionManager, cardEncryptionUtil, 10);
+        UUID concurrentId = UUID.randomUUID();
+        String takenHash = cardEncryptionUtil.hash("5555666677778888");
+        doReturn(List.of(card(firstId, "1111222233334444"), card(secondId, "5555666677778888")))
+                .when(jdbcTemplate).query(anyString(), any(RowMapper.class), eq(CardNumberHashBackfillService.MIN_ID), eq(10));
+        doNothing().when(jdbcTemplate)
+                .query(startsWith("SELECT number_hash"), any(RowCallbackHandler.class), any(Object.class));
+        doAnswer(invocation -> {
+            if (invocation.<String>getArgument(0).startsWith("UPDATE cards SET number_hash =")) {
+                throw new DuplicateKeyException("uk_cards_number_hash");
+            }
+            return new int[0];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        when(jdbcTemplate.update(startsWith("UPDATE cards SET number_hash ="), any(String.class), any(UUID.class))).thenAnswer(invocation -> {
+            if (takenHash.equals(invocation.getArgument(1))) {
+                throw new DuplicateKeyException("uk_cards_number_hash");
+            }
+            return 1;
+        });
+        when(jdbcTemplate.queryForList("SELECT id FROM cards WHERE number_hash = ?", UUID.class, takenHash))
+                .thenReturn(List.of(concurrentId));
+
+        assertEquals(1, backfillService.backfill());
+
+        verify(jdbcTemplate).update(startsWith("UPDATE cards SET number_hash ="),
+                eq(cardEncryptionUtil.hash("1111222233334444")), eq(firstId));
+        verify(jdbcTemplate, times(2)).execute("ROLLBACK TO SAVEPOINT number_hash_backfill");
+        ArgumentCaptor<List<Object[]>> duplicates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE cards SET duplicate_of"), duplicates.capture());
+        assertEquals(1, duplicates.getValue().size());
+        assertArrayEquals(new Object[]{concurrentId, secondId}, duplicates.getValue().getFirst());
+    }
+}
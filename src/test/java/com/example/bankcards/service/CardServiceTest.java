@@ -1,41 +1,57 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.CursorPageResponseDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.enums.CardStatus;
 import com.example.bankcards.enums.UserRole;
 import com.example.bankcards.exception.AccessDeniedException;
 import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.DuplicateResourceException;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.mapping.CardMapper;
+import com.example.bankcards.money.Money;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.util.CardEncryptionUtil;
+import com.example.bankcards.util.CursorCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -54,6 +70,18 @@ class CardServiceTest {
     @Mock
     private CardMapper cardMapper;
 
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private CardStatsService cardStatsService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private CardCache cardCache = new CardCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(1));
+
     @InjectMocks
     private CardService cardService;
 
@@ -85,21 +113,21 @@ class CardServiceTest {
                 .holderName("IVAN IVANOV")
                 .expiryDate(LocalDate.of(2027, 12, 31))
                 .status(CardStatus.ACTIVE)
-                .balance(BigDecimal.valueOf(5000))
+                .balance(Money.ofMajor(5000))
                 .build();
 
         expiredCard = Card.builder()
                 .id(cardId)
                 .owner(owner)
                 .status(CardStatus.EXPIRED)
-                .balance(BigDecimal.ZERO)
+                .balance(Money.ZERO)
                 .build();
 
         blockedCard = Card.builder()
                 .id(cardId)
                 .owner(owner)
                 .status(CardStatus.BLOCKED)
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.ofMajor(1000))
                 .build();
     }
 
@@ -108,30 +136,94 @@ class CardServiceTest {
     void createCard_success() {
         CreateCardRequest request = new CreateCardRequest(
                 userId, "1234567890123456", "IVAN IVANOV",
-                LocalDate.of(2027, 12, 31), BigDecimal.valueOf(5000)
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
         );
         when(userRepository.findById(userId)).thenReturn(Optional.of(owner));
+        when(cardEncryptionUtil.hash("1234567890123456")).thenReturn("hash");
         when(cardEncryptionUtil.encrypt("1234567890123456")).thenReturn("encrypted");
         when(cardEncryptionUtil.mask("1234567890123456")).thenReturn("**** **** **** 3456");
-        when(cardRepository.save(any())).thenReturn(activeCard);
+        when(cardRepository.saveAndFlush(any())).thenReturn(activeCard);
 
         Card result = cardService.createCard(request);
 
         assertNotNull(result);
         assertEquals(CardStatus.ACTIVE, result.getStatus());
-        verify(cardRepository).save(any(Card.class));
+        verify(cardRepository).saveAndFlush(any(Card.class));
+        verify(ledgerService).recordOpening(activeCard);
+        verify(cardStatsService).cardIssued(activeCard);
     }
 
     @Test
     void createCard_ownerNotFound_throwsResourceNotFoundException() {
         CreateCardRequest request = new CreateCardRequest(
                 userId, "1234567890123456", "IVAN IVANOV",
-                LocalDate.of(2027, 12, 31), BigDecimal.valueOf(5000)
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
         );
         when(userRepository.findById(userId)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> cardService.createCard(request));
-        verify(cardRepository, never()).save(any());
+        verify(cardRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createCard_duplicateNumber_throwsDuplicateResourceException() {
+        CreateCardRequest request = new CreateCardRequest(
+                userId, "1234567890123456", "IVAN IVANOV",
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
+        );
+        when(userRepository.findById(userId)).thenReturn(Optional.of(owner));
+        when(cardEncryptionUtil.hash("1234567890123456")).thenReturn("hash");
+        when(cardRepository.existsByNumberHash("hash")).thenReturn(true);
+
+        assertThrows(DuplicateResourceException.class, () -> cardService.createCard(request));
+        verify(cardEncryptionUtil, never()).encrypt(any());
+        verify(cardRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createCard_concurrentDuplicate_throwsDuplicateResourceException() {
+        CreateCardRequest request = new CreateCardRequest(
+                userId, "1234567890123456", "IVAN IVANOV",
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
+        );
+        when(userRepository.findById(userId)).thenReturn(Optional.of(owner));
+        when(cardEncryptionUtil.hash("1234567890123456")).thenReturn("hash");
+        when(cardRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", null, CardService.NUMBER_HASH_INDEX)));
+
+        assertThrows(DuplicateResourceException.class, () -> cardService.createCard(request));
+        verify(ledgerService, never()).recordOpening(any());
+    }
+
+    @Test
+    void createCard_otherConstraintViolation_rethrows() {
+        CreateCardRequest request = new CreateCardRequest(
+                userId, "1234567890123456", "IVAN IVANOV",
+                LocalDate.of(2027, 12, 31), Money.ofMajor(5000)
+        );
+        when(userRepository.findById(userId)).thenReturn(Optional.of(owner));
+        when(cardEncryptionUtil.hash("1234567890123456")).thenReturn("hash");
+        when(cardRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("fk",
+                new ConstraintViolationException("fk", null, "fk_cards_owner")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> cardService.createCard(request));
+    }
+
+    @Test
+    void findByNumber_existingCard_returnsCard() {
+        when(cardEncryptionUtil.hash("1234567890123456")).thenReturn("hash");
+        when(cardRepository.findByNumberHash("hash")).thenReturn(Optional.of(activeCard));
+
+        assertEquals(activeCard, cardService.findByNumber("1234567890123456"));
+        verify(cardEncryptionUtil, never()).decrypt(any());
+    }
+
+    @Test
+    void findByNumber_unknownNumber_throwsResourceNotFoundException() {
+        when(cardEncryptionUtil.hash("1234567890123456")).thenReturn("hash");
+        when(cardRepository.findByNumberHash("hash")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> cardService.findByNumber("1234567890123456"));
     }
 
     @Test
@@ -143,6 +235,7 @@ class CardServiceTest {
         Card result = cardService.activateCard(cardId);
 
         assertEquals(CardStatus.ACTIVE, result.getStatus());
+        verify(cardStatsService).statusChanged(blockedCard, CardStatus.BLOCKED);
     }
 
     @Test
@@ -168,6 +261,7 @@ class CardServiceTest {
         Card result = cardService.blockCard(cardId);
 
         assertEquals(CardStatus.BLOCKED, result.getStatus());
+        verify(cardStatsService).statusChanged(activeCard, CardStatus.ACTIVE);
     }
 
     @Test
@@ -184,6 +278,7 @@ class CardServiceTest {
 
         assertDoesNotThrow(() -> cardService.deleteCard(cardId));
         verify(cardRepository, never()).delete(activeCard);
+        verify(cardStatsService).cardDeleted(activeCard);
     }
 
     @Test
@@ -197,17 +292,47 @@ class CardServiceTest {
     @Test
     void getCard_ownerAccess_returnsCard() {
         when(cardRepository.findById(cardId)).thenReturn(Optional.of(activeCard));
+        when(cardMapper.toResponse(activeCard)).thenReturn(response(activeCard));
 
-        Card result = cardService.getCard(cardId, userId);
+        CardResponse result = cardService.getCard(cardId, userId);
 
-        assertEquals(cardId, result.getId());
+        assertEquals(cardId, result.id());
     }
 
     @Test
     void getCard_anotherUser_throwsAccessDeniedException() {
         when(cardRepository.findById(cardId)).thenReturn(Optional.of(activeCard));
+        when(cardMapper.toResponse(activeCard)).thenReturn(response(activeCard));
+
+        assertThrows(AccessDeniedException.class, () -> cardService.getCard(cardId, otherUserId));
+    }
+
+    @Test
+    void getCard_cacheHit_skipsRepositoryAndChecksOwner() {
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(activeCard));
+        when(cardMapper.toResponse(activeCard)).thenReturn(response(activeCard));
 
+        cardService.getCard(cardId, userId);
+        CardResponse cached = cardService.getCard(cardId, userId);
+
+        assertEquals(cardId, cached.id());
         assertThrows(AccessDeniedException.class, () -> cardService.getCard(cardId, otherUserId));
+        verify(cardRepository, times(1)).findById(cardId);
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void getCard_afterBlock_reloadsCard() {
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(activeCard));
+        when(cardRepository.save(any())).thenReturn(activeCard);
+        when(cardMapper.toResponse(activeCard)).thenAnswer(invocation -> response(activeCard));
+
+        cardService.getCard(cardId, userId);
+        cardService.blockCard(cardId);
+        CardResponse result = cardService.getCard(cardId, userId);
+
+        assertEquals(CardStatus.BLOCKED, result.status());
+        verify(cardCache).evict(cardId);
     }
 
     @Test
@@ -221,13 +346,60 @@ class CardServiceTest {
     void getCardsByOwner_success() {
         PageRequest pageable = PageRequest.of(0, 10);
         when(userRepository.existsById(userId)).thenReturn(true);
-        when(cardRepository.findAll(any(Specification.class), eq(pageable)))
-                .thenReturn(new PageImpl<>(List.of(activeCard), pageable, 1));
+        when(cardRepository.findResponses(any(Specification.class), eq(pageable)))
+                .thenReturn(new PageImpl<>(List.of(response(activeCard)), pageable, 1));
 
-        Page<Card> result = cardService.getCardsByOwner(userId, null, pageable);
+        Page<CardResponse> result = cardService.getCardsByOwner(userId, null, pageable);
 
         assertEquals(1, result.getTotalElements());
-        assertEquals(cardId, result.getContent().getFirst().getId());
+        assertEquals(cardId, result.getContent().getFirst().id());
+        verify(cardMapper, never()).toResponse(any());
+    }
+
+    @Test
+    void getCardsByOwnerSlice_skipsCount() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findResponseSlice(any(Specification.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(response(activeCard)), pageable, true));
+
+        assertTrue(cardService.getCardsByOwnerSlice(userId, null, pageable).hasNext());
+        verify(cardRepository, never()).findResponses(any(Specification.class), any());
+    }
+
+    @Test
+    void getCardsByOwnerAfter_fullPage_returnsNextCursor() {
+        activeCard.setCreatedAt(LocalDateTime.of(2026, 3, 1, 12, 0));
+        blockedCard.setId(UUID.randomUUID());
+        blockedCard.setCreatedAt(LocalDateTime.of(2026, 2, 1, 12, 0));
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(cardRepository.findResponsesBefore(any(Specification.class), eq(CursorCodec.FIRST_PAGE.createdAt()),
+                eq(CursorCodec.FIRST_PAGE.id()), eq(Limit.of(2))))
+                .thenReturn(List.of(response(activeCard), response(blockedCard)));
+
+        CursorPageResponseDto<CardResponse> result = cardService.getCardsByOwnerAfter(userId, null, "", 1);
+
+        assertEquals(1, result.content().size());
+        assertTrue(result.hasNext());
+        assertEquals(CursorCodec.encode(activeCard.getCreatedAt(), cardId), result.nextCursor());
+    }
+
+    @Test
+    void getAllCardsAfter_lastPage_hasNoCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 0);
+        when(cardRepository.findResponsesBefore(any(Specification.class), eq(createdAt), eq(cardId),
+                eq(Limit.of(21)))).thenReturn(List.of(response(blockedCard)));
+
+        CursorPageResponseDto<CardResponse> result = cardService.getAllCardsAfter(
+                null, null, CursorCodec.encode(createdAt, cardId), 20);
+
+        assertFalse(result.hasNext());
+        assertEquals(1, result.content().size());
+    }
+
+    @Test
+    void getAllCardsAfter_invalidCursor_throwsCardOperationException() {
+        assertThrows(CardOperationException.class, () -> cardService.getAllCardsAfter(null, null, "???", 20));
     }
 
     @Test
@@ -268,4 +440,14 @@ class CardServiceTest {
 
         assertThrows(CardOperationException.class, () -> cardService.requestBlock(cardId, userId));
     }
+
+    private CardResponse response(Card card) {
+        return CardResponse.builder()
+                .id(card.getId())
+                .ownerId(card.getOwner().getId())
+                .status(card.getStatus())
+                .balance(card.getBalance())
+                .createdAt(card.getCreatedAt())
+                .build();
+    }
 }
@@ -0,0 +1,237 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.enums.CardStatus;
+import com.example.bankcards.money.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardStatsServiceTest {
+
+    private static final String INSERT_DELTA = "INSERT INTO card_stats_deltas";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CardStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new CardStatsService(jdbcTemplate, transactionManager, 90);
+    }
+
+    private Card card(CardStatus status, long balance) {
+        return Card.builder()
+                .status(status)
+                .balance(Money.ofMajor(balance))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cardIssued_writesDeltaRows() {
+        statsService.cardIssued(card(CardStatus.ACTIVE, 100));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(INSERT_DELTA), rows.capture());
+        assertEquals(3, rows.getValue().size());
+        assertArrayEquals(new Object[]{"cards.ACTIVE", null, 1L}, rows.getValue().get(0));
+        assertArrayEquals(new Object[]{"balance.total", null, 10_000L}, rows.getValue().get(1));
+        assertArrayEquals(new Object[]{null, Date.valueOf(LocalDate.now()), 1L}, rows.getValue().get(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statusChanged_writesOppositeDeltas() {
+        statsService.statusChanged(CardStatus.ACTIVE, CardStatus.EXPIRED, 5);
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(INSERT_DELTA), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertArrayEquals(new Object[]{"cards.ACTIVE", null, -5L}, rows.getValue().get(0));
+        assertArrayEquals(new Object[]{"cards.EXPIRED", null, 5L}, rows.getValue().get(1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cardDeleted_zeroBalance_writesOnlyStatus() {
+        statsService.cardDeleted(card(CardStatus.BLOCKED, 0));
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(INSERT_DELTA), rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertArrayEquals(new Object[]{"cards.BLOCKED", null, -1L}, rows.getValue().getFirst());
+    }
+
+    @Test
+    void cardDeleted_alreadyDeletedCard_ignored() {
+        Card deleted = card(CardStatus.ACTIVE, 100);
+        deleted.setDeletedAt(LocalDateTime.now());
+
+        statsService.cardDeleted(deleted);
+        statsService.statusChanged(deleted, CardStatus.BLOCKED);
+        statsService.statusChanged(CardStatus.ACTIVE, CardStatus.ACTIVE, 3);
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void flush_movesDeltasAndReloadsWithUnmoved() {
+        LocalDate today = LocalDate.now();
+        stubQueries(Map.of(
+                "SELECT stat_key", List.<Object[]>of(
+                        new Object[]{"cards.ACTIVE", 1L},
+                        new Object[]{"cards.BLOCKED", 1L},
+                        new Object[]{"balance.total", 40_000L},
+                        new Object[]{"reconcile.runs"}),
+                "SELECT day", List.<Object[]>of(new Object[]{today, 2L})));
+
+        statsService.flush();
+
+        verify(jdbcTemplate).update(startsWith("WITH moved AS"));
+        CardStatsResponse stats = statsService.stats(7);
+        assertEquals(1L, stats.cardsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(1L, stats.cardsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(0L, stats.cardsByStatus().get(CardStatus.EXPIRED));
+        assertEquals(2, stats.totalCards());
+        assertEquals(Money.ofMajor(400), stats.totalBalance());
+        assertEquals(Money.ofMajor(200), stats.averageBalance());
+        assertEquals(7, stats.issuedPerDay().size());
+        assertEquals(today, stats.issuedPerDay().getLast().day());
+        assertEquals(2, stats.issuedPerDay().getLast().issued());
+    }
+
+    @Test
+    void flush_moveFails_stillReloads() {
+        stubQueries(Map.of("SELECT stat_key", List.<Object[]>of(
+                new Object[]{"cards.ACTIVE", 1L}, new Object[]{"balance.total", 10_000L})));
+        when(jdbcTemplate.update(startsWith("WITH moved AS"))).thenThrow(new QueryTimeoutException("timeout"));
+
+        statsService.flush();
+
+        CardStatsResponse stats = statsService.stats(1);
+        assertEquals(1, stats.totalCards());
+        assertEquals(Money.ofMajor(100), stats.totalBalance());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_writesDriftAsDeltaRows() {
+        LocalDate today = LocalDate.now();
+        stubQueries(Map.of(
+                "SELECT status", List.<Object[]>of(new Object[]{"ACTIVE", 3L, 30_000L}),
+                "SELECT created_at::DATE", List.<Object[]>of(new Object[]{today, 3L}),
+                "SELECT stat_key", List.<Object[]>of(
+                        new Object[]{"cards.ACTIVE", 1L}, new Object[]{"balance.total", 10_000L}),
+                "SELECT day", List.<Object[]>of(new Object[]{today, 1L})));
+
+        statsService.reconcile();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith(INSERT_DELTA), rows.capture());
+        assertEquals(3, rows.getValue().size());
+        assertArrayEquals(new Object[]{"cards.ACTIVE", null, 2L}, rows.getValue().get(0));
+        assertArrayEquals(new Object[]{"balance.total", null, 20_000L}, rows.getValue().get(1));
+        assertArrayEquals(new Object[]{null, Date.valueOf(today), 2L}, rows.getValue().get(2));
+        verify(jdbcTemplate).update(startsWith("UPDATE card_stats SET stat_value = stat_value + 1"));
+    }
+
+    @Test
+    void reconcile_noDrift_onlyMarksRun() {
+        LocalDate today = LocalDate.now();
+        stubQueries(Map.of(
+                "SELECT status", List.<Object[]>of(new Object[]{"ACTIVE", 1L, 10_000L}),
+                "SELECT created_at::DATE", List.<Object[]>of(new Object[]{today, 1L}),
+                "SELECT stat_key", List.<Object[]>of(
+                        new Object[]{"cards.ACTIVE", 1L}, new Object[]{"balance.total", 10_000L}),
+                "SELECT day", List.<Object[]>of(new Object[]{today, 1L})));
+
+        statsService.reconcile();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate).update(startsWith("UPDATE card_stats SET stat_value = stat_value + 1"));
+        assertEquals(1, statsService.stats(1).totalCards());
+    }
+
+    @Test
+    void reconcile_concurrentRunOnAnotherNode_skipped() {
+        stubQueries(Map.of("SELECT status", List.<Object[]>of(new Object[]{"ACTIVE", 1L, 10_000L})));
+        when(jdbcTemplate.update(startsWith("UPDATE card_stats SET stat_value = stat_value + 1")))
+                .thenThrow(new CannotAcquireLockException("could not serialize access"));
+
+        statsService.reconcile();
+
+        verify(transactionManager).rollback(eq(null));
+        assertEquals(0, statsService.stats(1).totalCards());
+    }
+
+    /**
+     * Строки результата для запросов, начинающихся с ключа; столбцы - String, Long или LocalDate
+     */
+    private void stubQueries(Map<String, List<Object[]>> results) {
+        Answer<Void> answer = invocation -> {
+            String sql = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Map.Entry<String, List<Object[]>> result : results.entrySet()) {
+                if (sql.startsWith(result.getKey())) {
+                    for (Object[] row : result.getValue()) {
+                        handler.processRow(resultSet(row));
+                    }
+                }
+            }
+            return null;
+        };
+        doAnswer(answer).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        doAnswer(answer).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object.class));
+    }
+
+    private static ResultSet resultSet(Object[] row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < row.length; i++) {
+            int column = i + 1;
+            switch (row[i]) {
+                case String value -> when(rs.getString(column)).thenReturn(value);
+                case Long value -> when(rs.getLong(column)).thenReturn(value);
+                case LocalDate value -> when(rs.getDate(column)).thenReturn(Date.valueOf(value));
+                default -> throw new IllegalArgumentException("Неподдерживаемый тип: " + row[i]);
+            }
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.LedgerBalanceResponse;
+import com.example.bankcards.dto.LedgerTotals;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerSnapshot;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.enums.LedgerEntryType;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import com.example.bankcards.repository.LedgerHeadRepository;
+import com.example.bankcards.repository.LedgerSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    private LedgerEntryRepository entryRepository;
+    @Mock
+    private LedgerSnapshotRepository snapshotRepository;
+    @Mock
+    private LedgerHeadRepository headRepository;
+    @Mock
+    private CardRepository cardRepository;
+
+    private LedgerService ledgerService;
+
+    private final UUID fromCardId = UUID.randomUUID();
+    private final UUID toCardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerService(entryRepository, snapshotRepository, headRepository, cardRepository, 3);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void recordTransfer_writesDebitAndCreditEntries() {
+        Transfer transfer = Transfer.builder()
+                .id(UUID.randomUUID())
+                .fromCard(Card.builder().id(fromCardId).build())
+                .toCard(Card.builder().id(toCardId).build())
+                .amount(Money.ofMajor(250))
+                .build();
+        when(headRepository.advance(any(), anyLong(), anyInt())).thenReturn(counters(0, 1));
+
+        ledgerService.recordTransfer(transfer);
+
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(entryRepository).saveAll(captor.capture());
+        List<LedgerEntry> entries = captor.getValue();
+        assertEquals(2, entries.size());
+        assertEquals(LedgerEntryType.DEBIT, entries.get(0).getEntryType());
+        assertEquals(Money.ofMajor(-250), entries.get(0).getAmount());
+        assertEquals(fromCardId, entries.get(0).getCardId());
+        assertEquals(LedgerEntryType.CREDIT, entries.get(1).getEntryType());
+        assertEquals(Money.ofMajor(250), entries.get(1).getAmount());
+        assertEquals(transfer.getId(), entries.get(1).getTransferId());
+        verify(headRepository).advance(fromCardId, Money.ofMajor(-250).minorUnits(), 1);
+        verify(headRepository).advance(toCardId, Money.ofMajor(250).minorUnits(), 1);
+        verify(snapshotRepository, never()).save(any());
+        verify(entryRepository, never()).totalsBetween(any(), any(), any());
+    }
+
+    @Test
+    void recordTransfer_intervalReached_snapshotsRunningBalance() {
+        Transfer transfer = Transfer.builder()
+                .fromCard(Card.builder().id(fromCardId).build())
+                .toCard(Card.builder().id(toCardId).build())
+                .amount(Money.ofMajor(10))
+                .build();
+        when(headRepository.advance(fromCardId, Money.ofMajor(-10).minorUnits(), 1))
+                .thenReturn(counters(Money.ofMajor(970).minorUnits(), 3));
+        when(headRepository.advance(toCardId, Money.ofMajor(10).minorUnits(), 1))
+                .thenReturn(counters(Money.ofMajor(20).minorUnits(), 2));
+        LocalDateTime before = LocalDateTime.now();
+
+        ledgerService.recordTransfer(transfer);
+
+        ArgumentCaptor<LedgerSnapshot> captor = ArgumentCaptor.forClass(LedgerSnapshot.class);
+        verify(snapshotRepository).save(captor.capture());
+        assertEquals(fromCardId, captor.getValue().getCardId());
+        assertEquals(Money.ofMajor(970), captor.getValue().getBalance());
+        assertFalse(captor.getValue().getAsOf().isBefore(before));
+        assertEquals(3, captor.getValue().getEntryCount());
+        verify(headRepository).markSnapshotted(fromCardId, 3);
+        verify(headRepository, never()).markSnapshotted(eq(toCardId), anyInt());
+    }
+
+    @Test
+    void recordTransfers_sameCardTwice_advancesCountersOnce() {
+        UUID otherCardId = UUID.randomUUID();
+        List<Transfer> transfers = List.of(
+                Transfer.builder()
+                        .fromCard(Card.builder().id(fromCardId).build())
+                        .toCard(Card.builder().id(toCardId).build())
+                        .amount(Money.ofMajor(10))
+                        .build(),
+                Transfer.builder()
+                        .fromCard(Card.builder().id(fromCardId).build())
+                        .toCard(Card.builder().id(otherCardId).build())
+                        .amount(Money.ofMajor(5))
+                        .build());
+        when(headRepository.advance(any(), anyLong(), anyInt())).thenReturn(counters(0, 1));
+
+        ledgerService.recordTransfers(transfers);
+
+        verify(headRepository).advance(fromCardId, Money.ofMajor(-15).minorUnits(), 2);
+        verify(headRepository).advance(toCardId, Money.ofMajor(10).minorUnits(), 1);
+        verify(headRepository).advance(otherCardId, Money.ofMajor(5).minorUnits(), 1);
+    }
+
+    @Test
+    void recordOpening_startsCountersWithOpeningBalance() {
+        Card card = Card.builder().id(fromCardId).balance(Money.ofMajor(100)).build();
+
+        ledgerService.recordOpening(card);
+
+        verify(entryRepository).save(any(LedgerEntry.class));
+        verify(headRepository).advance(fromCardId, Money.ofMajor(100).minorUnits(), 1);
+    }
+
+    @Test
+    void balanceAsOf_addsEntriesAfterSnapshot() {
+        UUID cardId = UUID.randomUUID();
+        LocalDateTime asOf = LocalDateTime.of(2026, 6, 1, 12, 0);
+        LocalDateTime snapshotAsOf = LocalDateTime.of(2026, 5, 30, 0, 0);
+        when(cardRepository.existsById(cardId)).thenReturn(true);
+        when(snapshotRepository.findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(cardId, asOf))
+                .thenReturn(Optional.of(LedgerSnapshot.builder()
+                        .cardId(cardId).balance(Money.ofMajor(500)).asOf(snapshotAsOf).build()));
+        when(entryRepository.totalsBetween(cardId, snapshotAsOf, asOf))
+                .thenReturn(new LedgerTotals(4, Money.ofMajor(125), asOf.minusHours(1)));
+
+        LedgerBalanceResponse response = ledgerService.balanceAsOf(cardId, asOf);
+
+        assertEquals(Money.ofMajor(625), response.balance());
+        assertEquals(snapshotAsOf, response.snapshotAsOf());
+        assertEquals(4, response.entriesAfterSnapshot());
+    }
+
+    @Test
+    void balanceAsOf_cardNotFound_throwsResourceNotFoundException() {
+        UUID cardId = UUID.randomUUID();
+        when(cardRepository.existsById(cardId)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> ledgerService.balanceAsOf(cardId, LocalDateTime.now()));
+    }
+
+    private static LedgerHeadRepository.Counters counters(long balanceMinor, int entriesSinceSnapshot) {
+        return new LedgerHeadRepository.Counters() {
+            @Override
+            public long getBalanceMinor() {
+                return balanceMinor;
+            }
+
+            @Override
+            public int getEntriesSinceSnapshot() {
+                return entriesSinceSnapshot;
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.enums.TransferMode;
+import com.example.bankcards.exception.TransferConflictException;
+import com.example.bankcards.mapping.TransferMapper;
+import com.example.bankcards.money.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransferEngineTest {
+
+    @Mock
+    private TransferService transferService;
+    @Mock
+    private TransferMapper transferMapper;
+    @Mock
+    private TransferIdempotencyService idempotencyService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final TransferRequest request =
+            new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(10));
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferConflictTracker conflictTracker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        conflictTracker = new TransferConflictTracker(meterRegistry, 0.3, 0.5, Duration.ofMinutes(1), 100);
+    }
+
+    private TransferEngine engine(TransferMode mode) {
+        return new TransferEngine(transferService, transferMapper, idempotencyService, conflictTracker,
+                new TransferSequencer(meterRegistry, false, 1, 1, Set.of(), false), meterRegistry, mode, 3, Duration.ZERO, Duration.ZERO);
+    }
+
+    private static ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException("Card", UUID.randomUUID());
+    }
+
+    @Test
+    void transfer_pessimisticMode_usesLockingPath() {
+        TransferEngine engine = engine(TransferMode.PESSIMISTIC);
+        Transfer transfer = new Transfer();
+        TransferResponse response = TransferResponse.builder().build();
+        when(transferService.transfer(request, userId, null)).thenReturn(transfer);
+        when(transferMapper.toResponse(transfer)).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, null));
+        verify(transferService, never()).transferConditional(any(), any(), any());
+    }
+
+    @Test
+    void transfer_conditionalMode_usesConditionalUpdatePath() {
+        TransferEngine engine = engine(TransferMode.CONDITIONAL_UPDATE);
+        TransferResponse response = TransferResponse.builder().build();
+        when(transferService.transferConditional(request, userId, null)).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, null));
+        verify(transferService, never()).transfer(any(), any(), any());
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_goesThroughIdempotencyStore() {
+        TransferEngine engine = engine(TransferMode.PESSIMISTIC);
+        TransferResponse response = TransferResponse.builder().build();
+        when(idempotencyService.execute(eq(userId), eq("key-1"), eq(request), any())).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, "key-1"));
+        verify(transferService, never()).transfer(any(), any(), any());
+    }
+
+    @Test
+    void transfer_withIdempotencyKey_passesClaimIntoTransferTransaction() {
+        TransferEngine engine = engine(TransferMode.PESSIMISTIC);
+        TransferIdempotencyService.Claim claim = new TransferIdempotencyService.Claim(userId, "key-1");
+        Transfer transfer = new Transfer();
+        TransferResponse response = TransferResponse.builder().build();
+        when(idempotencyService.execute(eq(userId), eq("key-1"), eq(request), any()))
+                .thenAnswer(invocation -> invocation.<Function<TransferIdempotencyService.Claim, TransferResponse>>
+                        getArgument(3).apply(claim));
+        when(transferService.transfer(request, userId, claim)).thenReturn(transfer);
+        when(transferMapper.toResponse(transfer)).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, "key-1"));
+    }
+
+    @Test
+    void transfer_optimisticMode_retriesOnVersionConflict() {
+        TransferEngine engine = engine(TransferMode.OPTIMISTIC);
+        Transfer transfer = new Transfer();
+        TransferResponse response = TransferResponse.builder().build();
+        when(transferService.transferOptimistic(request, userId, null))
+                .thenThrow(conflict())
+                .thenReturn(transfer);
+        when(transferMapper.toResponse(transfer)).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, null));
+        verify(transferService, times(2)).transferOptimistic(request, userId, null);
+        assertEquals(1.0, meterRegistry.get("bank.transfer.retries").tag("mode", "optimistic").functionCounter().count());
+        assertEquals(0.5, engine.conflictRate(TransferMode.OPTIMISTIC));
+    }
+
+    @Test
+    void transfer_optimisticMode_attemptsExhausted_throwsConflict() {
+        TransferEngine engine = engine(TransferMode.OPTIMISTIC);
+        when(transferService.transferOptimistic(request, userId, null)).thenThrow(conflict());
+
+        assertThrows(TransferConflictException.class, () -> engine.transfer(request, userId, null));
+        verify(transferService, times(3)).transferOptimistic(request, userId, null);
+        verify(transferService, never()).transfer(any(), any(), any());
+    }
+
+    @Test
+    void transfer_adaptiveMode_attemptsExhausted_fallsBackToPessimistic() {
+        TransferEngine engine = engine(TransferMode.ADAPTIVE);
+        Transfer transfer = new Transfer();
+        TransferResponse response = TransferResponse.builder().build();
+        when(transferService.transferOptimistic(request, userId, null)).thenThrow(conflict());
+        when(transferService.transfer(request, userId, null)).thenReturn(transfer);
+        when(transferMapper.toResponse(transfer)).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, null));
+        assertTrue(conflictTracker.isContended(request.fromCardId()));
+        assertEquals(1.0, meterRegistry.get("bank.transfer.adaptive.fallbacks")
+                .tag("reason", "retries_exhausted").counter().count());
+    }
+
+    @Test
+    void transfer_adaptiveMode_hotCard_skipsOptimisticAttempt() {
+        TransferEngine engine = engine(TransferMode.ADAPTIVE);
+        conflictTracker.recordConflict(request.toCardId());
+        Transfer transfer = new Transfer();
+        TransferResponse response = TransferResponse.builder().build();
+        when(transferService.transfer(request, userId, null)).thenReturn(transfer);
+        when(transferMapper.toResponse(transfer)).thenReturn(response);
+
+        assertSame(response, engine.transfer(request, userId, null));
+        verify(transferService, never()).transferOptimistic(any(), any(), any());
+    }
+
+    @Test
+    void conflictTracker_successesCoolCardDown() {
+        UUID cardId = UUID.randomUUID();
+        conflictTracker.recordConflict(cardId);
+        assertTrue(conflictTracker.isContended(cardId));
+
+        conflictTracker.recordSuccess(cardId);
+        conflictTracker.recordSuccess(cardId);
+
+        assertEquals(0.125, conflictTracker.conflictRate(cardId));
+        assertFalse(conflictTracker.isContended(cardId));
+    }
+}
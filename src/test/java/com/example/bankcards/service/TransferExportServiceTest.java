@@ -0,0 +1,83 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.enums.ExportFormat;
+import com.example.bankcards.exception.CardOperationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransferExportServiceTest {
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ResultSet resultSet;
+
+    private final UUID id = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private final UUID fromCardId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private final UUID toCardId = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private final LocalDateTime createdAt = LocalDateTime.of(2026, 1, 15, 10, 30);
+
+    private TransferExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new TransferExportService(dataSource, transactionManager, 500);
+    }
+
+    private void stubRow() throws Exception {
+        when(resultSet.getObject(1, UUID.class)).thenReturn(id);
+        when(resultSet.getObject(2, UUID.class)).thenReturn(fromCardId);
+        when(resultSet.getString(3)).thenReturn("**** **** **** 1111");
+        when(resultSet.getObject(4, UUID.class)).thenReturn(toCardId);
+        when(resultSet.getString(5)).thenReturn("**** **** **** 2222");
+        when(resultSet.getBigDecimal(6)).thenReturn(new BigDecimal("150.50"));
+        when(resultSet.getObject(7, LocalDateTime.class)).thenReturn(createdAt);
+    }
+
+    @Test
+    void writeRow_csv() throws Exception {
+        stubRow();
+        StringWriter writer = new StringWriter();
+
+        TransferExportService.writeRow(resultSet, ExportFormat.CSV, writer);
+
+        assertEquals(id + "," + fromCardId + ",**** **** **** 1111," + toCardId
+                + ",**** **** **** 2222,150.50,2026-01-15T10:30\n", writer.toString());
+    }
+
+    @Test
+    void writeRow_ndjson() throws Exception {
+        stubRow();
+        StringWriter writer = new StringWriter();
+
+        TransferExportService.writeRow(resultSet, ExportFormat.NDJSON, writer);
+
+        assertEquals("{\"id\":\"" + id + "\",\"fromCardId\":\"" + fromCardId
+                + "\",\"fromCardMasked\":\"**** **** **** 1111\",\"toCardId\":\"" + toCardId
+                + "\",\"toCardMasked\":\"**** **** **** 2222\",\"amount\":150.50,\"createdAt\":\"2026-01-15T10:30\"}\n",
+                writer.toString());
+    }
+
+    @Test
+    void validateRange_fromNotBeforeTo_throwsCardOperationException() {
+        assertThrows(CardOperationException.class, () -> exportService.validateRange(createdAt, createdAt));
+    }
+}
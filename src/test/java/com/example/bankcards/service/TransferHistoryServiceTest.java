@@ -0,0 +1,130 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CursorPageResponseDto;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.exception.AccessDeniedException;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.mapping.TransferMapper;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransferRepository;
+import com.example.bankcards.util.CursorCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransferHistoryServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+    @Mock
+    private TransferRepository transferRepository;
+    @Spy
+    private TransferMapper transferMapper = Mappers.getMapper(TransferMapper.class);
+
+    @InjectMocks
+    private TransferHistoryService transferHistoryService;
+
+    private final LocalDateTime now = LocalDateTime.of(2026, 3, 1, 12, 0);
+    private UUID userId;
+    private Card card;
+    private Card other;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID();
+        User owner = User.builder().id(userId).build();
+        card = Card.builder().id(UUID.randomUUID()).owner(owner).maskedNumber("**** **** **** 1111").build();
+        other = Card.builder().id(UUID.randomUUID()).owner(owner).maskedNumber("**** **** **** 2222").build();
+    }
+
+    private Transfer transfer(Card from, Card to, int minutesAgo) {
+        return Transfer.builder()
+                .id(UUID.randomUUID())
+                .fromCard(from)
+                .toCard(to)
+                .amount(Money.ofMajor(10))
+                .createdAt(now.minusMinutes(minutesAgo))
+                .build();
+    }
+
+    @Test
+    void getHistory_firstPage_mergesDirectionsNewestFirst() {
+        Transfer out1 = transfer(card, other, 1);
+        Transfer in2 = transfer(other, card, 2);
+        Transfer out3 = transfer(card, other, 3);
+        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(transferRepository.findOutgoingBefore(eq(card.getId()), any(), any(), eq(Limit.of(3))))
+                .thenReturn(List.of(out1, out3));
+        when(transferRepository.findIncomingBefore(eq(card.getId()), any(), any(), eq(Limit.of(3))))
+                .thenReturn(List.of(in2));
+
+        CursorPageResponseDto<TransferResponse> page = transferHistoryService.getHistory(card.getId(), userId, null, 2);
+
+        assertEquals(List.of(out1.getId(), in2.getId()), page.content().stream().map(TransferResponse::id).toList());
+        assertTrue(page.hasNext());
+        CursorCodec.Cursor next = CursorCodec.decode(page.nextCursor());
+        assertEquals(in2.getCreatedAt(), next.createdAt());
+        assertEquals(in2.getId(), next.id());
+    }
+
+    @Test
+    void getHistory_withCursor_seeksFromCursor() {
+        Transfer in = transfer(other, card, 10);
+        String cursor = CursorCodec.encode(now, UUID.randomUUID());
+        CursorCodec.Cursor decoded = CursorCodec.decode(cursor);
+        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+        when(transferRepository.findOutgoingBefore(card.getId(), decoded.createdAt(), decoded.id(), Limit.of(21)))
+                .thenReturn(List.of());
+        when(transferRepository.findIncomingBefore(card.getId(), decoded.createdAt(), decoded.id(), Limit.of(21)))
+                .thenReturn(List.of(in));
+
+        CursorPageResponseDto<TransferResponse> page = transferHistoryService.getHistory(card.getId(), userId, cursor, 20);
+
+        assertEquals(1, page.content().size());
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+        verify(transferRepository).findIncomingBefore(card.getId(), decoded.createdAt(), decoded.id(), Limit.of(21));
+    }
+
+    @Test
+    void getHistory_notOwner_throwsAccessDeniedException() {
+        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+
+        assertThrows(AccessDeniedException.class,
+                () -> transferHistoryService.getHistory(card.getId(), UUID.randomUUID(), null, 20));
+    }
+
+    @Test
+    void getHistory_malformedCursor_throwsCardOperationException() {
+        when(cardRepository.findById(card.getId())).thenReturn(Optional.of(card));
+
+        assertThrows(CardOperationException.class,
+                () -> transferHistoryService.getHistory(card.getId(), userId, "not-a-cursor", 20));
+    }
+}
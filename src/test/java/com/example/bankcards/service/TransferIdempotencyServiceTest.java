@@ -0,0 +1,190 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.TransferIdempotency;
+import com.example.bankcards.entity.TransferIdempotencyId;
+import com.example.bankcards.enums.IdempotencyStatus;
+import com.example.bankcards.exception.CardOperationException;
+import com.example.bankcards.exception.DuplicateResourceException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.money.Money;
+import com.example.bankcards.repository.TransferIdempotencyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransferIdempotencyServiceTest {
+
+    @Mock
+    private TransferIdempotencyRepository idempotencyRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TransferIdempotencyService idempotencyService;
+
+    private UUID userId;
+    private TransferRequest request;
+    private TransferResponse response;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new TransferIdempotencyService(
+                idempotencyRepository, meterRegistry, Duration.ofHours(24), DataSize.ofMegabytes(1), Duration.ofMinutes(5));
+
+        userId = UUID.randomUUID();
+        request = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), Money.ofMajor(100));
+        response = TransferResponse.builder()
+                .id(UUID.randomUUID())
+                .fromCardMasked("**** **** **** 1111")
+                .toCardMasked("**** **** **** 2222")
+                .amount(Money.ofMajor(100))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void execute_repeatedKey_returnsStoredResponseFromMemory() {
+        when(idempotencyRepository.claim(eq(userId), eq("key"), anyString(), any())).thenReturn(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        TransferResponse first = idempotencyService.execute(userId, "key", request, claim -> {
+            executions.incrementAndGet();
+            return response;
+        });
+        TransferResponse second = idempotencyService.execute(userId, "key", request, claim -> {
+            executions.incrementAndGet();
+            return response;
+        });
+
+        assertSame(first, second);
+        assertEquals(1, executions.get());
+        verify(idempotencyRepository, times(1)).claim(any(), any(), any(), any());
+        assertEquals(1.0, meterRegistry.get("bank.idempotency.lookups").tag("result", "memory").counter().count());
+    }
+
+    @Test
+    void execute_completedInDatabase_replaysWithoutTransfer() {
+        when(idempotencyRepository.claim(eq(userId), eq("key"), anyString(), any())).thenReturn(0);
+        when(idempotencyRepository.findById(new TransferIdempotencyId(userId, "key")))
+                .thenAnswer(inv -> Optional.of(storedRow(inv.getArgument(0), TransferIdempotencyService.fingerprint(request))));
+
+        TransferResponse replayed = idempotencyService.execute(userId, "key", request, claim -> {
+            throw new AssertionError("перевод не должен выполняться повторно");
+        });
+
+        assertEquals(response.id(), replayed.id());
+        assertEquals(response.fromCardMasked(), replayed.fromCardMasked());
+    }
+
+    @Test
+    void execute_pendingInDatabase_throwsDuplicate() {
+        when(idempotencyRepository.claim(eq(userId), eq("key"), anyString(), any())).thenReturn(0);
+        TransferIdempotency pending = TransferIdempotency.builder()
+                .id(new TransferIdempotencyId(userId, "key"))
+                .status(IdempotencyStatus.PENDING)
+                .build();
+        when(idempotencyRepository.findById(any())).thenReturn(Optional.of(pending));
+
+        assertThrows(DuplicateResourceException.class,
+                () -> idempotencyService.execute(userId, "key", request, claim -> response));
+    }
+
+    @Test
+    void execute_sameKeyDifferentRequest_throwsDuplicate() {
+        when(idempotencyRepository.claim(eq(userId), eq("key"), anyString(), any())).thenReturn(1);
+        idempotencyService.execute(userId, "key", request, claim -> response);
+
+        TransferRequest other = new TransferRequest(request.fromCardId(), request.toCardId(), Money.ofMajor(1));
+
+        assertThrows(DuplicateResourceException.class,
+                () -> idempotencyService.execute(userId, "key", other, claim -> response));
+    }
+
+    @Test
+    void execute_transferFails_releasesKey() {
+        when(idempotencyRepository.claim(eq(userId), eq("key"), anyString(), any())).thenReturn(1);
+
+        assertThrows(InsufficientFundsException.class, () -> idempotencyService.execute(userId, "key", request,
+                claim -> {
+                    throw new InsufficientFundsException("Недостаточно средств");
+                }));
+        verify(idempotencyRepository).release(userId, "key");
+        verify(idempotencyRepository, never()).complete(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void execute_unknownOutcome_keepsKeyClaimed() {
+        when(idempotencyRepository.claim(eq(userId), eq("key"), anyString(), any())).thenReturn(1);
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(userId, "key", request,
+                claim -> {
+                    throw new IllegalStateException("соединение потеряно при коммите");
+                }));
+        verify(idempotencyRepository, never()).release(any(), any());
+    }
+
+    @Test
+    void complete_writesResultForClaim() {
+        TransferIdempotencyService.Claim claim = new TransferIdempotencyService.Claim(userId, "key");
+        when(idempotencyRepository.complete(userId, "key", response.id(), response.fromCardMasked(),
+                response.toCardMasked(), response.amount().toDecimal(), response.createdAt())).thenReturn(1);
+
+        idempotencyService.complete(claim, response);
+
+        verify(idempotencyRepository).complete(userId, "key", response.id(), response.fromCardMasked(),
+                response.toCardMasked(), response.amount().toDecimal(), response.createdAt());
+    }
+
+    @Test
+    void complete_alreadyCompletedElsewhere_throwsDuplicate() {
+        TransferIdempotencyService.Claim claim = new TransferIdempotencyService.Claim(userId, "key");
+        when(idempotencyRepository.complete(any(), any(), any(), any(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(DuplicateResourceException.class, () -> idempotencyService.complete(claim, response));
+    }
+
+    @Test
+    void execute_tooLongKey_throwsCardOperationException() {
+        String key = "k".repeat(TransferIdempotencyService.MAX_KEY_LENGTH + 1);
+
+        assertThrows(CardOperationException.class,
+                () -> idempotencyService.execute(userId, key, request, claim -> response));
+        verify(idempotencyRepository, never()).claim(any(), any(), any(), any());
+    }
+
+    private TransferIdempotency storedRow(TransferIdempotencyId id, String requestHash) {
+        return TransferIdempotency.builder()
+                .id(id)
+                .requestHash(requestHash)
+                .status(IdempotencyStatus.COMPLETED)
+                .transferId(response.id())
+                .fromCardMasked(response.fromCardMasked())
+                .toCardMasked(response.toCardMasked())
+                .amount(response.amount())
+                .transferCreatedAt(response.createdAt())
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.TooManyRequestsException;
+import com.example.bankcards.money.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransferSequencerTest {
+
+    private final UUID hotCardId = UUID.randomUUID();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransferSequencer sequencer;
+
+    @AfterEach
+    void tearDown() {
+        if (sequencer != null) {
+            sequencer.shutdown();
+        }
+    }
+
+    @Test
+    void routingCard_onlyHotCardsAreSequenced() {
+        sequencer = new TransferSequencer(meterRegistry, true, 4, 10, Set.of(hotCardId), false);
+        UUID other = UUID.randomUUID();
+
+        assertEquals(hotCardId, sequencer.routingCard(new TransferRequest(other, hotCardId, Money.ofMajor(1))));
+        assertEquals(hotCardId, sequencer.routingCard(new TransferRequest(hotCardId, other, Money.ofMajor(1))));
+        assertNull(sequencer.routingCard(new TransferRequest(other, UUID.randomUUID(), Money.ofMajor(1))));
+    }
+
+    @Test
+    void routingCard_coldToHot_routedByHotCard() {
+        sequencer = new TransferSequencer(meterRegistry, true, 4, 10, Set.of(hotCardId), false);
+        UUID cold = UUID.randomUUID();
+
+        assertEquals(hotCardId, sequencer.routingCard(new TransferRequest(cold, hotCardId, Money.ofMajor(1))));
+        assertEquals(hotCardId, sequencer.routingCard(new TransferRequest(hotCardId, cold, Money.ofMajor(1))));
+    }
+
+    @Test
+    void routingCard_hotToHot_bothDirectionsShareCard() {
+        UUID otherHot = UUID.randomUUID();
+        sequencer = new TransferSequencer(meterRegistry, true, 4, 10, Set.of(hotCardId, otherHot), false);
+        UUID first = TransferService.LOCK_ORDER.compare(hotCardId, otherHot) < 0 ? hotCardId : otherHot;
+
+        assertEquals(first, sequencer.routingCard(new TransferRequest(hotCardId, otherHot, Money.ofMajor(1))));
+        assertEquals(first, sequencer.routingCard(new TransferRequest(otherHot, hotCardId, Money.ofMajor(1))));
+    }
+
+    @Test
+    void routingCard_emptyHotList_nothingSequencedUnlessAllCards() {
+        sequencer = new TransferSequencer(meterRegistry, true, 4, 10, Set.of(), false);
+        TransferRequest request = new TransferRequest(hotCardId, UUID.randomUUID(), Money.ofMajor(1));
+        assertNull(sequencer.routingCard(request));
+        sequencer.shutdown();
+
+        sequencer = new TransferSequencer(new SimpleMeterRegistry(), true, 4, 10, Set.of(), true);
+        assertEquals(hotCardId, sequencer.routingCard(request));
+    }
+
+    @Test
+    void execute_sameCard_runsOneAtATime() {
+        sequencer = new TransferSequencer(meterRegistry, true, 4, 100, Set.of(hotCardId), false);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Void>> callers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            TransferRequest request = new TransferRequest(UUID.randomUUID(), hotCardId, Money.ofMajor(1));
+            callers.add(CompletableFuture.runAsync(() -> sequencer.execute(request, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.onSpinWait();
+                running.decrementAndGet();
+                return null;
+            })));
+        }
+        CompletableFuture.allOf(callers.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void execute_propagatesTransferException() {
+        sequencer = new TransferSequencer(meterRegistry, true, 1, 10, Set.of(), true);
+        TransferRequest request = new TransferRequest(hotCardId, UUID.randomUUID(), Money.ofMajor(1));
+
+        assertThrows(InsufficientFundsException.class, () -> sequencer.execute(request, () -> {
+            throw new InsufficientFundsException("Недостаточно средств");
+        }));
+    }
+
+    @Test
+    void execute_queueFull_throwsTooManyRequests() throws Exception {
+        sequencer = new TransferSequencer(meterRegistry, true, 1, 1, Set.of(), true);
+        TransferRequest request = new TransferRequest(hotCardId, UUID.randomUUID(), Money.ofMajor(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> running = CompletableFuture.supplyAsync(() -> sequencer.execute(request, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> queued = CompletableFuture.supplyAsync(() -> sequencer.execute(request, () -> null));
+        while (meterRegistry.get("bank.transfer.sequencer.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> sequencer.execute(request, () -> null));
+        release.countDown();
+        running.join();
+        queued.join();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,26 +1,34 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferResponse;
 import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.entity.User;
+import com.example.bankcards.enums.BatchItemStatus;
+import com.example.bankcards.enums.BatchTransferMode;
 import com.example.bankcards.enums.CardStatus;
 import com.example.bankcards.enums.UserRole;
 import com.example.bankcards.exception.AccessDeniedException;
 import com.example.bankcards.exception.CardOperationException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.TransferMapper;
+import com.example.bankcards.money.Money;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransferRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,6 +37,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -43,6 +54,14 @@ class TransferServiceTest {
     private CardRepository cardRepository;
     @Mock
     private TransferRepository transferRepository;
+    @Spy
+    private TransferMapper transferMapper = Mappers.getMapper(TransferMapper.class);
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private CardCache cardCache;
+    @Mock
+    private TransferIdempotencyService idempotencyService;
 
     @InjectMocks
     private TransferService transferService;
@@ -71,7 +90,7 @@ class TransferServiceTest {
                 .owner(owner)
                 .maskedNumber("**** **** **** 1111")
                 .status(CardStatus.ACTIVE)
-                .balance(BigDecimal.valueOf(5000))
+                .balance(Money.ofMajor(5000))
                 .expiryDate(LocalDate.of(2027, 12, 31))
                 .build();
 
@@ -80,17 +99,33 @@ class TransferServiceTest {
                 .owner(owner)
                 .maskedNumber("**** **** **** 2222")
                 .status(CardStatus.ACTIVE)
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.ofMajor(1000))
                 .expiryDate(LocalDate.of(2027, 12, 31))
                 .build();
     }
 
 
+    @Test
+    void transfer_withClaim_completesKeyInsideTransfer() {
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(1000));
+        TransferIdempotencyService.Claim claim = new TransferIdempotencyService.Claim(userId, "key");
+        Transfer savedTransfer = Transfer.builder()
+                .id(UUID.randomUUID()).fromCard(fromCard).toCard(toCard).amount(Money.ofMajor(1000)).build();
+
+        when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
+        when(transferRepository.save(any())).thenReturn(savedTransfer);
+
+        transferService.transfer(request, userId, claim);
+
+        verify(idempotencyService).complete(claim, transferMapper.toResponse(savedTransfer));
+    }
+
     @Test
     void transfer_success_updatesBalances() {
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(1000));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(1000));
         Transfer savedTransfer = Transfer.builder()
-                .fromCard(fromCard).toCard(toCard).amount(BigDecimal.valueOf(1000)).build();
+                .fromCard(fromCard).toCard(toCard).amount(Money.ofMajor(1000)).build();
 
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
@@ -98,15 +133,36 @@ class TransferServiceTest {
 
         Transfer result = transferService.transfer(request, userId);
 
-        assertEquals(BigDecimal.valueOf(4000), fromCard.getBalance());
-        assertEquals(BigDecimal.valueOf(2000), toCard.getBalance());
+        assertEquals(Money.ofMajor(4000), fromCard.getBalance());
+        assertEquals(Money.ofMajor(2000), toCard.getBalance());
         assertNotNull(result);
         verify(cardRepository, times(2)).save(any(Card.class));
+        verify(ledgerService).recordTransfer(savedTransfer);
+        verify(cardCache).evict(fromCardId);
+        verify(cardCache).evict(toCardId);
+    }
+
+    @Test
+    void transferOptimistic_success_readsCardsWithoutLock() {
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(1000));
+        Transfer savedTransfer = Transfer.builder()
+                .fromCard(fromCard).toCard(toCard).amount(Money.ofMajor(1000)).build();
+
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+        when(transferRepository.save(any())).thenReturn(savedTransfer);
+
+        Transfer result = transferService.transferOptimistic(request, userId);
+
+        assertEquals(Money.ofMajor(4000), fromCard.getBalance());
+        assertEquals(Money.ofMajor(2000), toCard.getBalance());
+        assertNotNull(result);
+        verify(cardRepository, never()).findByIdWithLock(any());
     }
 
     @Test
     void transfer_sameCard_throwsCardOperationException() {
-        TransferRequest request = new TransferRequest(fromCardId, fromCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, fromCardId, Money.ofMajor(100));
 
         assertThrows(CardOperationException.class, () -> transferService.transfer(request, userId));
         verifyNoInteractions(cardRepository);
@@ -116,7 +172,7 @@ class TransferServiceTest {
     void transfer_fromCardNotFound_throwsResourceNotFoundException() {
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.empty());
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
 
         assertThrows(ResourceNotFoundException.class, () -> transferService.transfer(request, userId));
     }
@@ -126,7 +182,7 @@ class TransferServiceTest {
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.empty());
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
 
         assertThrows(ResourceNotFoundException.class, () -> transferService.transfer(request, userId));
     }
@@ -135,12 +191,12 @@ class TransferServiceTest {
     void transfer_fromCardNotOwnedByUser_throwsAccessDeniedException() {
         User otherUser = User.builder().id(UUID.randomUUID()).username("otherUser").build();
         Card otherCard = Card.builder().id(fromCardId).owner(otherUser)
-                .status(CardStatus.ACTIVE).balance(BigDecimal.valueOf(5000)).build();
+                .status(CardStatus.ACTIVE).balance(Money.ofMajor(5000)).build();
 
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(otherCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
 
         assertThrows(AccessDeniedException.class, () -> transferService.transfer(request, userId));
     }
@@ -149,12 +205,12 @@ class TransferServiceTest {
     void transfer_toCardNotOwnedByUser_throwsAccessDeniedException() {
         User otherUser = User.builder().id(UUID.randomUUID()).username("otherUser").build();
         Card otherCard = Card.builder().id(toCardId).owner(otherUser)
-                .status(CardStatus.ACTIVE).balance(BigDecimal.valueOf(1000)).build();
+                .status(CardStatus.ACTIVE).balance(Money.ofMajor(1000)).build();
 
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(otherCard));
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
 
         assertThrows(AccessDeniedException.class, () -> transferService.transfer(request, userId));
     }
@@ -165,7 +221,7 @@ class TransferServiceTest {
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
 
         assertThrows(CardOperationException.class, () -> transferService.transfer(request, userId));
     }
@@ -176,7 +232,7 @@ class TransferServiceTest {
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(100));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
 
         assertThrows(CardOperationException.class, () -> transferService.transfer(request, userId));
     }
@@ -186,7 +242,7 @@ class TransferServiceTest {
         when(cardRepository.findByIdWithLock(fromCardId)).thenReturn(Optional.of(fromCard));
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(99999));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(99999));
 
         assertThrows(InsufficientFundsException.class, () -> transferService.transfer(request, userId));
         verify(cardRepository, never()).save(any());
@@ -198,9 +254,145 @@ class TransferServiceTest {
         when(cardRepository.findByIdWithLock(toCardId)).thenReturn(Optional.of(toCard));
         when(transferRepository.save(any())).thenReturn(mock(Transfer.class));
 
-        TransferRequest request = new TransferRequest(fromCardId, toCardId, BigDecimal.valueOf(5000));
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(5000));
 
         assertDoesNotThrow(() -> transferService.transfer(request, userId));
-        assertEquals(BigDecimal.ZERO, fromCard.getBalance());
+        assertEquals(Money.ZERO, fromCard.getBalance());
+    }
+
+    @Test
+    void transferConditional_success_returnsMaskedNumbers() {
+        Money amount = Money.ofMajor(1000);
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, amount);
+
+        when(cardRepository.debitIfAllowed(fromCardId, userId, amount.minorUnits())).thenReturn(Optional.of("**** **** **** 1111"));
+        when(cardRepository.creditIfAllowed(toCardId, userId, amount.minorUnits())).thenReturn(Optional.of("**** **** **** 2222"));
+        when(cardRepository.getReferenceById(fromCardId)).thenReturn(fromCard);
+        when(cardRepository.getReferenceById(toCardId)).thenReturn(toCard);
+        when(transferRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        TransferResponse result = transferService.transferConditional(request, userId);
+
+        assertEquals("**** **** **** 1111", result.fromCardMasked());
+        assertEquals("**** **** **** 2222", result.toCardMasked());
+        assertEquals(amount, result.amount());
+        verify(cardRepository, never()).findByIdWithLock(any());
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    void transferConditional_sameCard_throwsCardOperationException() {
+        TransferRequest request = new TransferRequest(fromCardId, fromCardId, Money.ofMajor(100));
+
+        assertThrows(CardOperationException.class, () -> transferService.transferConditional(request, userId));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void transferConditional_insufficientFunds_throwsInsufficientFundsException() {
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(99999));
+
+        when(cardRepository.debitIfAllowed(eq(fromCardId), eq(userId), anyLong())).thenReturn(Optional.empty());
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+
+        assertThrows(InsufficientFundsException.class, () -> transferService.transferConditional(request, userId));
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    void transferConditional_fromCardNotOwnedByUser_throwsAccessDeniedException() {
+        User otherUser = User.builder().id(UUID.randomUUID()).username("otherUser").build();
+        fromCard.setOwner(otherUser);
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
+
+        when(cardRepository.debitIfAllowed(eq(fromCardId), eq(userId), anyLong())).thenReturn(Optional.empty());
+        when(cardRepository.findById(fromCardId)).thenReturn(Optional.of(fromCard));
+
+        assertThrows(AccessDeniedException.class, () -> transferService.transferConditional(request, userId));
+    }
+
+    @Test
+    void transferConditional_toCardBlocked_throwsCardOperationException() {
+        toCard.setStatus(CardStatus.BLOCKED);
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
+
+        when(cardRepository.debitIfAllowed(eq(fromCardId), eq(userId), anyLong())).thenReturn(Optional.of("**** **** **** 1111"));
+        when(cardRepository.creditIfAllowed(eq(toCardId), eq(userId), anyLong())).thenReturn(Optional.empty());
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.of(toCard));
+
+        assertThrows(CardOperationException.class, () -> transferService.transferConditional(request, userId));
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    void transferConditional_toCardNotFound_throwsResourceNotFoundException() {
+        TransferRequest request = new TransferRequest(fromCardId, toCardId, Money.ofMajor(100));
+
+        when(cardRepository.debitIfAllowed(eq(fromCardId), eq(userId), anyLong())).thenReturn(Optional.of("**** **** **** 1111"));
+        when(cardRepository.creditIfAllowed(eq(toCardId), eq(userId), anyLong())).thenReturn(Optional.empty());
+        when(cardRepository.findById(toCardId)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> transferService.transferConditional(request, userId));
+    }
+
+    @Test
+    void transferBatch_bestEffort_appliesValidTransfersOnly() {
+        when(cardRepository.findAllByIdWithLock(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(fromCardId, toCardId, Money.ofMajor(1000)),
+                new TransferRequest(fromCardId, toCardId, Money.ofMajor(99999)),
+                new TransferRequest(toCardId, fromCardId, Money.ofMajor(1500)));
+
+        BatchTransferResponse result = transferService.transferBatch(requests, BatchTransferMode.BEST_EFFORT, userId);
+
+        assertEquals(2, result.completed());
+        assertEquals(1, result.failed());
+        assertEquals(BatchItemStatus.COMPLETED, result.results().get(0).status());
+        assertEquals(BatchItemStatus.FAILED, result.results().get(1).status());
+        assertEquals("**** **** **** 2222", result.results().get(2).transfer().fromCardMasked());
+        assertEquals(Money.ofMajor(5500), fromCard.getBalance());
+        assertEquals(Money.ofMajor(500), toCard.getBalance());
+        verify(transferRepository).saveAll(any());
+        verify(ledgerService).recordTransfers(any());
+    }
+
+    @Test
+    void transferBatch_atomicWithFailure_writesNothing() {
+        when(cardRepository.findAllByIdWithLock(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(fromCardId, toCardId, Money.ofMajor(1000)),
+                new TransferRequest(fromCardId, UUID.randomUUID(), Money.ofMajor(100)));
+
+        BatchTransferResponse result = transferService.transferBatch(requests, BatchTransferMode.ATOMIC, userId);
+
+        assertEquals(0, result.completed());
+        assertEquals(BatchItemStatus.ROLLED_BACK, result.results().get(0).status());
+        assertEquals(BatchItemStatus.FAILED, result.results().get(1).status());
+        assertEquals(Money.ofMajor(5000), fromCard.getBalance());
+        verify(transferRepository, never()).saveAll(any());
+        verify(ledgerService, never()).recordTransfers(any());
+        verify(cardRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transferBatch_defaultModeIsAtomic() {
+        when(cardRepository.findAllByIdWithLock(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        List<TransferRequest> requests = List.of(new TransferRequest(fromCardId, toCardId, Money.ofMajor(10)));
+
+        BatchTransferResponse result = transferService.transferBatch(requests, null, userId);
+
+        assertEquals(BatchTransferMode.ATOMIC, result.mode());
+        assertEquals(1, result.completed());
+    }
+
+    @Test
+    void lockOrder_matchesPostgresUuidOrdering() {
+        UUID low = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID high = UUID.fromString("ffffffff-0000-0000-0000-000000000000");
+
+        assertEquals(-1, Integer.signum(TransferService.LOCK_ORDER.compare(low, high)));
     }
 }
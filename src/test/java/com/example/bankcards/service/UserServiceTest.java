@@ -1,20 +1,29 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CursorPageResponseDto;
+import com.example.bankcards.dto.UserResponse;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.enums.UserRole;
 import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.mapping.UserMapper;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.TokenRevocationList;
+import com.example.bankcards.util.CursorCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mapstruct.factory.Mappers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,9 +32,11 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,6 +47,12 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private TokenRevocationList tokenRevocationList;
+
+    @Spy
+    private UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+
     @InjectMocks
     private UserService userService;
 
@@ -123,6 +140,8 @@ class UserServiceTest {
         User result = userService.disableUser(userId);
 
         assertFalse(result.isEnabled());
+        assertEquals(1, result.getTokenVersion());
+        verify(tokenRevocationList).revoke(userId, 1);
         verify(userRepository).save(user);
     }
 
@@ -141,6 +160,7 @@ class UserServiceTest {
         assertDoesNotThrow(() -> userService.deleteUser(userId));
 
         assertNotNull(user.getDeletedAt());
+        verify(tokenRevocationList).revoke(userId, 1);
         verify(userRepository, never()).delete(any());
     }
 
@@ -150,4 +170,33 @@ class UserServiceTest {
 
         assertThrows(ResourceNotFoundException.class, () -> userService.deleteUser(userId));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUsersAfter_fullPage_returnsNextCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 0);
+        User second = User.builder().id(UUID.randomUUID()).username("second").createdAt(createdAt.minusDays(1)).build();
+        User third = User.builder().id(UUID.randomUUID()).username("third").createdAt(createdAt.minusDays(2)).build();
+        user.setCreatedAt(createdAt);
+        when(userRepository.findBefore(eq(CursorCodec.FIRST_PAGE.createdAt()), eq(CursorCodec.FIRST_PAGE.id()),
+                eq(Limit.of(3)))).thenReturn(List.of(user, second, third));
+
+        CursorPageResponseDto<UserResponse> result = userService.getUsersAfter(null, 2);
+
+        assertEquals(2, result.content().size());
+        assertTrue(result.hasNext());
+        assertEquals(CursorCodec.encode(second.getCreatedAt(), second.getId()), result.nextCursor());
+    }
+
+    @Test
+    void getUsersAfter_lastPage_hasNoCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 12, 0);
+        UUID lastId = UUID.randomUUID();
+        when(userRepository.findBefore(createdAt, lastId, Limit.of(21))).thenReturn(List.of(user));
+
+        CursorPageResponseDto<UserResponse> result = userService.getUsersAfter(CursorCodec.encode(createdAt, lastId), 20);
+
+        assertEquals(1, result.content().size());
+        assertFalse(result.hasNext());
+        assertNull(result.nextCursor());
+    }
+}
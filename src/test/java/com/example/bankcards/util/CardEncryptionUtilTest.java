@@ -0,0 +1,74 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardEncryptionUtilTest {
+
+    private static final String KEY = "edhCGwPguciHN8k+JyQHVrS/Stytke62CrSf0ED/MPc=";
+
+    /**
+     * Шифротекст, записанный предыдущей реализацией (ByteBuffer и новый Cipher на каждый вызов)
+     */
+    private static final String STORED_CIPHERTEXT = "oz1jcOhwsp7A00Ey4ZOOkFBTk7dvanKnuDiislUm2AlOWWveUopRm9cCrC4=";
+
+    private final CardEncryptionUtil cardEncryptionUtil = new CardEncryptionUtil(KEY, "");
+
+    @Test
+    void decrypt_storedCiphertext_stillReadable() {
+        assertEquals("4276123456789012", cardEncryptionUtil.decrypt(STORED_CIPHERTEXT));
+    }
+
+    @Test
+    void encrypt_roundTripWithRandomIv() {
+        String first = cardEncryptionUtil.encrypt("4276123456789012");
+        String second = cardEncryptionUtil.encrypt("4276123456789012");
+
+        assertNotEquals(first, second);
+        assertEquals(STORED_CIPHERTEXT.length(), first.length());
+        assertEquals("4276123456789012", cardEncryptionUtil.decrypt(first));
+        assertEquals("4276123456789012", cardEncryptionUtil.decrypt(second));
+    }
+
+    @Test
+    void decrypt_tamperedCiphertext_throwsAndPoolStaysUsable() {
+        char[] tampered = STORED_CIPHERTEXT.toCharArray();
+        tampered[20] = tampered[20] == 'A' ? 'B' : 'A';
+
+        assertThrows(IllegalStateException.class, () -> cardEncryptionUtil.decrypt(new String(tampered)));
+        assertEquals("4276123456789012", cardEncryptionUtil.decrypt(STORED_CIPHERTEXT));
+    }
+
+    @Test
+    void hash_ignoresSeparatorsAndMatchesStoredValue() {
+        assertEquals("dff4a77a441a16123a4f583b6210ede9d80638285263011cfe8ff0a75dfe4bb7",
+                cardEncryptionUtil.hash("4276123456789012"));
+        assertEquals(cardEncryptionUtil.hash("4276123456789012"), cardEncryptionUtil.hash("4276 1234 5678 9012"));
+    }
+
+    @Test
+    void encryptDecrypt_concurrentCalls_shareNoState() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<Boolean>> results = IntStream.range(0, 2_000)
+                    .mapToObj(i -> executor.submit(() -> {
+                        String number = String.format("%016d", i);
+                        return number.equals(cardEncryptionUtil.decrypt(cardEncryptionUtil.encrypt(number)))
+                                && cardEncryptionUtil.hash(number).equals(cardEncryptionUtil.hash(" " + number));
+                    }))
+                    .toList();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        }
+    }
+}